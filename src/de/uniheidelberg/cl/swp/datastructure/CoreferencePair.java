@@ -70,6 +70,17 @@ public class CoreferencePair {
 	 * through FeatureExtraction.
 	 */
 	private List<Feature<?>> featuerVector;	
+	
+	/**
+	 * The feature values in the encoding of the WEKA attributes, one slot for each feature
+	 * extractor. {@link Double#NaN} denotes a missing value.
+	 */
+	private double[] featureValues;
+	
+	/**
+	 * The feature extractors which produced the feature values.
+	 */
+	private List<AbstractFeatureExtractor> featureExtractors;
 		
 	/**
 	 * Initialize a CoreferencePair, consisting of two Mentions.
@@ -97,9 +108,44 @@ public class CoreferencePair {
 	
 	/**
 	 * Returns the feature vector consisting of several {@link AbstractFeatureExtractor}s.
+	 * <br>
+	 * If the features have been extracted as primitive values, the {@link Feature} objects are
+	 * created from them on first access.
 	 * @return The feature vector for this coreference pair.
 	 */
-	public List<Feature<?>> getFeatuerVector() { return featuerVector; }
+	public List<Feature<?>> getFeatuerVector() {
+		if (featuerVector.isEmpty() && featureValues != null) {
+			for (int i = 0; i < featureValues.length; i++) {
+				Feature<?> feature = featureExtractors.get(i).toFeature(featureValues[i]);
+				
+				if (feature != null) featuerVector.add(feature);
+			}
+		}
+		return featuerVector;
+	}
+	
+	/**
+	 * Sets the primitive feature values, replacing all previously added {@link Feature}s.
+	 * @param extractors The feature extractors, one for each slot of the values.
+	 * @param values The feature values.
+	 */
+	public void setFeatureValues(List<AbstractFeatureExtractor> extractors, double[] values) {
+		this.featureExtractors = extractors;
+		this.featureValues = values;
+		this.featuerVector.clear();
+	}
+	
+	/**
+	 * Returns the primitive feature values.
+	 * @return The feature values or <code>null</code> if they haven't been extracted.
+	 */
+	public double[] getFeatureValues() { return featureValues; }
+	
+	/**
+	 * Returns the feature extractors which produced the primitive feature values.
+	 * @return The feature extractors, one for each slot of the values.
+	 */
+	public List<AbstractFeatureExtractor> getFeatureExtractors() { return featureExtractors; }
 	
 	/**
 	 * Getter for the antecedent Mention.
@@ -137,6 +183,7 @@ public class CoreferencePair {
 	 * @return true if matching features are found.
 	 */
 	public boolean equals(Object o) {
+		if (! (o instanceof CoreferencePair)) return false;
 		CoreferencePair crp = (CoreferencePair) o;
 		
 		Word anaph1 = this.getAnaphor().getWordList().get(0);
@@ -145,13 +192,31 @@ public class CoreferencePair {
 		Word antec1 = this.getAntecedent().getWordList().get(0);
 		Word antec2 = crp.getAntecedent().getWordList().get(0);
 		
-		if (anaph1.getXmlId().equals(anaph2.getXmlId()) &&
-			antec1.getXmlId().equals(antec2.getXmlId())) 
+		if (anaph1.hasSameId(anaph2) && antec1.hasSameId(antec2)) 
 			return true;
 				
 		return false;
 	}
 	
+	/**
+	 * Hash code matching {@link #equals(Object)}: based on the ordinals of the first words of the
+	 * anaphor and the antecedent, or their xml ids if they have no ordinal.
+	 * @return The hash code of this coreference pair.
+	 */
+	public int hashCode() {
+		return 31 * hashCode(anaphor.getWordList().get(0)) +
+				hashCode(antecedent.getWordList().get(0));
+	}
+	
+	/**
+	 * Hash code of a word matching {@link Word#hasSameId(Word)}.
+	 * @param word The word.
+	 * @return The ordinal of the word or the hash code of its xml id if it has no ordinal.
+	 */
+	private static int hashCode(Word word) {
+		return word.getOrdinal() >= 0 ? word.getOrdinal() : word.getXmlId().hashCode();
+	}
+	
 	
 	/**
 	 * Setter for the ACR system to use.
@@ -0,0 +1,461 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.datastructure
+ * class: PairTable
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.datastructure;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.util.MMAXParser;
+
+
+/**
+ * A columnar table of {@link CoreferencePair}s of one document.
+ * <br>
+ * <p>Instead of one object per pair (with its {@link Mention}s, {@link Feature}s and strings) the
+ * pairs are stored in primitive arrays: each mention is stored once as the ordinals of its words,
+ * each pair as the ids of its two mentions, the direct neighbor flag and the id of the ACR-System
+ * which predicted it. Feature values are stored in a dense matrix with one row per pair, nominal
+ * values as the index of the value in the WEKA attribute and missing values as
+ * {@link Double#NaN}.</p>
+ * 
+ * <p>{@link CoreferencePair} objects are only created on demand by {@link #getPair(int)} and by
+ * the {@link #asList()} view, e.g. for writing the pairs to the results.</p>
+ */
+public class PairTable {
+	private final MMAXParser mmax;
+	
+	/**
+	 * Word ordinals of all mentions, the words of mention m are stored from
+	 * mentionOffsets[m] to mentionOffsets[m + 1].
+	 */
+	private int[] mentionWords = new int[64];
+	private int[] mentionOffsets = new int[33];
+	private int mentionCount = 0;
+	
+	private int[] antecedents = new int[32];
+	private int[] anaphors = new int[32];
+	private boolean[] directNeighbors = new boolean[32];
+	private byte[] systems = new byte[32];
+	private int size = 0;
+	
+	/**
+	 * Names of the ACR-Systems, the system id of a pair is the position in this list.
+	 */
+	private final List<String> systemNames = new ArrayList<String>();
+	
+	private List<AbstractFeatureExtractor> featureExtractors = Collections.emptyList();
+	private int columns = 0;
+	private double[] features = new double[0];
+	
+	/**
+	 * Creates an empty table for the pairs of a document.
+	 * 
+	 * @param mmax The document, whose words are referenced by the ordinals.
+	 */
+	public PairTable(MMAXParser mmax) {
+		this.mmax = mmax;
+	}
+	
+	/**
+	 * Creates a table from {@link Entity}s by splitting each chain into all pairs of its mentions,
+	 * as {@link MMAXParser#splitCorefChainsToPairs(List)} does, but without creating
+	 * {@link CoreferencePair}s.
+	 * 
+	 * @param entities The coreference chains.
+	 * @param mmax The document of the chains.
+	 * @return Table with the pairs of all chains.
+	 */
+	public static PairTable fromEntities(List<Entity> entities, MMAXParser mmax) {
+		PairTable table = new PairTable(mmax);
+		
+		for (Entity entity : entities) {
+			int[] mentions = new int[entity.getMentions().size()];
+			
+			for (int i = 0; i < mentions.length; i++) {
+				mentions[i] = table.addMention(entity.getMentions().get(i));
+			}
+			for (int i = 0; i < mentions.length - 1; i++) {
+				for (int z = i + 1; z < mentions.length; z++) {
+					if (mentions[i] < 0 || mentions[z] < 0) continue;
+					table.addPair(mentions[i], mentions[z], z == i + 1, null);
+				}
+			}
+		}
+		return table;
+	}
+	
+	/**
+	 * Creates a table from a list of {@link CoreferencePair}s. Mentions shared by several pairs
+	 * are stored once.
+	 * 
+	 * @param pairs The {@link CoreferencePair}s.
+	 * @param mmax The document of the pairs.
+	 * @return Table with all pairs whose mentions contain words of the document.
+	 */
+	public static PairTable fromPairs(List<CoreferencePair> pairs, MMAXParser mmax) {
+		PairTable table = new PairTable(mmax);
+		Map<Mention,Integer> mentionIds = new IdentityHashMap<Mention,Integer>();
+		
+		for (CoreferencePair pair : pairs) {
+			int antecedent = table.addMention(pair.getAntecedent(), mentionIds);
+			int anaphor = table.addMention(pair.getAnaphor(), mentionIds);
+			
+			if (antecedent < 0 || anaphor < 0) continue;
+			table.addPair(antecedent, anaphor, pair.isDirectNeighbor(), pair.getAcrSystem());
+		}
+		return table;
+	}
+	
+	/**
+	 * Adds a mention, reusing the id of a mention which has been added before.
+	 */
+	private int addMention(Mention mention, Map<Mention,Integer> mentionIds) {
+		Integer id = mentionIds.get(mention);
+		
+		if (id == null) {
+			id = addMention(mention);
+			mentionIds.put(mention, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * Adds a mention to the table. Words which don't belong to the document are skipped.
+	 * 
+	 * @param mention The {@link Mention} to be added.
+	 * @return Id of the mention or -1 if none of its words belongs to the document.
+	 */
+	public int addMention(Mention mention) {
+		int start = mentionOffsets[mentionCount];
+		int end = start;
+		
+		for (Word word : mention.getWordList()) {
+			int ordinal = word.getOrdinal() >= 0 ? word.getOrdinal() :
+				mmax.getWordPosition(word.getXmlId());
+			
+			if (ordinal < 0) continue;
+			if (end == mentionWords.length) {
+				mentionWords = Arrays.copyOf(mentionWords, 2 * mentionWords.length);
+			}
+			mentionWords[end++] = ordinal;
+		}
+		if (end == start) return -1;
+		
+		if (mentionCount + 2 > mentionOffsets.length) {
+			mentionOffsets = Arrays.copyOf(mentionOffsets, 2 * mentionOffsets.length);
+		}
+		mentionOffsets[++mentionCount] = end;
+		return mentionCount - 1;
+	}
+	
+	/**
+	 * Adds a pair of two mentions of this table.
+	 * 
+	 * @param antecedent Id of the antecedent mention.
+	 * @param anaphor Id of the anaphor mention.
+	 * @param directNeighbor Whether the mentions are direct neighbors in their chain.
+	 * @param acrSystem Name of the ACR-System which predicted the pair, may be <code>null</code>.
+	 * @return Row of the pair.
+	 */
+	public int addPair(int antecedent, int anaphor, boolean directNeighbor, String acrSystem) {
+		if (size == antecedents.length) {
+			int capacity = 2 * size;
+			antecedents = Arrays.copyOf(antecedents, capacity);
+			anaphors = Arrays.copyOf(anaphors, capacity);
+			directNeighbors = Arrays.copyOf(directNeighbors, capacity);
+			systems = Arrays.copyOf(systems, capacity);
+		}
+		if (features.length < (size + 1) * columns) {
+			int oldLength = features.length;
+			features = Arrays.copyOf(features, antecedents.length * columns);
+			Arrays.fill(features, oldLength, features.length, Double.NaN);
+		}
+		antecedents[size] = antecedent;
+		anaphors[size] = anaphor;
+		directNeighbors[size] = directNeighbor;
+		systems[size] = (byte) getSystemId(acrSystem);
+		return size++;
+	}
+	
+	/**
+	 * Returns the id of an ACR-System, adding it if necessary.
+	 */
+	private int getSystemId(String acrSystem) {
+		if (acrSystem == null) return -1;
+		int id = systemNames.indexOf(acrSystem);
+		
+		if (id < 0) {
+			id = systemNames.size();
+			systemNames.add(acrSystem);
+		}
+		return id;
+	}
+	
+	/**
+	 * Defines the feature columns of the table. All feature values are reset to missing.
+	 * 
+	 * @param extractors The feature extractors, one column each.
+	 */
+	public void setFeatureExtractors(List<AbstractFeatureExtractor> extractors) {
+		this.featureExtractors = extractors;
+		this.columns = extractors.size();
+		this.features = new double[antecedents.length * columns];
+		Arrays.fill(this.features, Double.NaN);
+	}
+	
+	/**
+	 * Getter for the number of pairs.
+	 * 
+	 * @return Number of pairs.
+	 */
+	public int size() {return size;}
+	
+	/**
+	 * Getter for the document of the pairs.
+	 * 
+	 * @return The {@link MMAXParser} of the document.
+	 */
+	public MMAXParser getMmax() {return mmax;}
+	
+	/**
+	 * Getter for the ordinal of the first word of the antecedent.
+	 * 
+	 * @param row Row of the pair.
+	 * @return Word ordinal.
+	 */
+	public int getAntecedentOrdinal(int row) {
+		return mentionWords[mentionOffsets[antecedents[row]]];
+	}
+	
+	/**
+	 * Getter for the ordinal of the first word of the anaphor.
+	 * 
+	 * @param row Row of the pair.
+	 * @return Word ordinal.
+	 */
+	public int getAnaphorOrdinal(int row) {
+		return mentionWords[mentionOffsets[anaphors[row]]];
+	}
+	
+	/**
+	 * Returns the words of the antecedent as a view on the words of the document.
+	 * 
+	 * @param row Row of the pair.
+	 * @return The words of the antecedent.
+	 */
+	public List<Word> getAntecedentWords(int row) {return new MentionWords(antecedents[row]);}
+	
+	/**
+	 * Returns the words of the anaphor as a view on the words of the document.
+	 * 
+	 * @param row Row of the pair.
+	 * @return The words of the anaphor.
+	 */
+	public List<Word> getAnaphorWords(int row) {return new MentionWords(anaphors[row]);}
+	
+	/**
+	 * Getter for the direct neighbor flag.
+	 * 
+	 * @param row Row of the pair.
+	 * @return Whether the mentions are direct neighbors in their chain.
+	 */
+	public boolean isDirectNeighbor(int row) {return directNeighbors[row];}
+	
+	/**
+	 * Getter for the ACR-System which predicted a pair.
+	 * 
+	 * @param row Row of the pair.
+	 * @return Name of the ACR-System or <code>null</code>.
+	 */
+	public String getAcrSystem(int row) {
+		return systems[row] < 0 ? null : systemNames.get(systems[row]);
+	}
+	
+	/**
+	 * Getter for the number of feature columns.
+	 * 
+	 * @return Number of features.
+	 */
+	public int getFeatureCount() {return columns;}
+	
+	/**
+	 * Getter for the name of a feature column.
+	 * 
+	 * @param column Feature column.
+	 * @return Name of the feature.
+	 */
+	public String getFeatureName(int column) {return featureExtractors.get(column).getName();}
+	
+	/**
+	 * Getter for the feature extractors of the columns.
+	 * 
+	 * @return The feature extractors, one for each column.
+	 */
+	public List<AbstractFeatureExtractor> getFeatureExtractors() {return featureExtractors;}
+	
+	/**
+	 * Getter for a feature value.
+	 * 
+	 * @param row Row of the pair.
+	 * @param column Feature column.
+	 * @return The value, {@link Double#NaN} if it is missing.
+	 */
+	public double getFeature(int row, int column) {
+		return features[row * columns + column];
+	}
+	
+	/**
+	 * Setter for a feature value.
+	 * 
+	 * @param row Row of the pair.
+	 * @param column Feature column.
+	 * @param value The value, {@link Double#NaN} if it is missing.
+	 */
+	public void setFeature(int row, int column, double value) {
+		features[row * columns + column] = value;
+	}
+	
+	/**
+	 * Copies all feature values of a row.
+	 * 
+	 * @param row Row of the pair.
+	 * @param values Receives the values, one for each feature column.
+	 */
+	public void getFeatures(int row, double[] values) {
+		System.arraycopy(features, row * columns, values, 0, columns);
+	}
+	
+	/**
+	 * Setter for all feature values of a row.
+	 * 
+	 * @param row Row of the pair.
+	 * @param values The values, one for each feature column.
+	 */
+	public void setFeatures(int row, double[] values) {
+		System.arraycopy(values, 0, features, row * columns, columns);
+	}
+	
+	/**
+	 * Creates a {@link CoreferencePair} object for a row, including a copy of its feature values.
+	 * 
+	 * @param row Row of the pair.
+	 * @return A new {@link CoreferencePair}.
+	 */
+	public CoreferencePair getPair(int row) {
+		Mention antecedent = new Mention();
+		Mention anaphor = new Mention();
+		antecedent.setWordList(new ArrayList<Word>(getAntecedentWords(row)));
+		anaphor.setWordList(new ArrayList<Word>(getAnaphorWords(row)));
+		
+		CoreferencePair pair = new CoreferencePair(antecedent, anaphor);
+		pair.setDirectNeighbor(directNeighbors[row]);
+		pair.setAcrSystem(getAcrSystem(row));
+		pair.setMmax(mmax);
+		
+		if (columns > 0) {
+			double[] values = new double[columns];
+			getFeatures(row, values);
+			pair.setFeatureValues(featureExtractors, values);
+		}
+		return pair;
+	}
+	
+	/**
+	 * Creates a table with some of the rows of this table, e.g. the pairs which have been
+	 * evaluated as true positives. The mentions and the feature columns are taken over, so the
+	 * rows keep their feature values.
+	 * 
+	 * @param rows Rows of this table in the order of the new table.
+	 * @param acrSystems ACR-System of each selected row, <code>null</code> to keep the systems
+	 * 		  of this table.
+	 * @param count Number of selected rows.
+	 * @return The new table.
+	 */
+	public PairTable select(int[] rows, String[] acrSystems, int count) {
+		PairTable selection = new PairTable(mmax);
+		selection.mentionWords = Arrays.copyOf(mentionWords, mentionOffsets[mentionCount] + 1);
+		selection.mentionOffsets = Arrays.copyOf(mentionOffsets, mentionCount + 2);
+		selection.mentionCount = mentionCount;
+		selection.setFeatureExtractors(featureExtractors);
+		
+		for (int i = 0; i < count; i++) {
+			int row = rows[i];
+			int added = selection.addPair(antecedents[row], anaphors[row], directNeighbors[row],
+					acrSystems == null ? getAcrSystem(row) : acrSystems[i]);
+			System.arraycopy(features, row * columns, selection.features, added * columns,
+					columns);
+		}
+		return selection;
+	}
+	
+	/**
+	 * Returns a read-only view of the table as a list of {@link CoreferencePair}s. A new pair is
+	 * created by {@link #getPair(int)} on each access, so the list doesn't hold the pairs.
+	 * 
+	 * @return The pairs of the table.
+	 */
+	public List<CoreferencePair> asList() {
+		return new AbstractList<CoreferencePair>() {
+			@Override
+			public CoreferencePair get(int row) {
+				if (row < 0 || row >= size) throw new IndexOutOfBoundsException("" + row);
+				return getPair(row);
+			}
+			
+			@Override
+			public int size() {return size;}
+		};
+	}
+	
+	/**
+	 * Read-only view of the words of a mention.
+	 */
+	private class MentionWords extends AbstractList<Word> {
+		private final int offset;
+		private final int length;
+		
+		MentionWords(int mention) {
+			this.offset = mentionOffsets[mention];
+			this.length = mentionOffsets[mention + 1] - offset;
+		}
+		
+		@Override
+		public Word get(int index) {
+			if (index < 0 || index >= length) throw new IndexOutOfBoundsException("" + index);
+			return mmax.getWordList().get(mentionWords[offset + index]);
+		}
+		
+		@Override
+		public int size() {return length;}
+	}
+}
@@ -63,6 +63,12 @@ public class Word implements Comparable<Word>{
 	 */
 	private String xmlID;	
 	
+	/**
+	 * Dense ordinal of the word within its MMAX file (its position in the sorted word list), -1 if
+	 * the word hasn't been assigned to a document.
+	 */
+	private int ordinal = -1;
+	
 	/**
 	 * Initialize a new Word object with the following information:
 	 * 
@@ -123,6 +129,31 @@ public class Word implements Comparable<Word>{
 	 */
 	public String getXmlId() {	return this.xmlID;	}
 	
+	/**
+	 * Getter for the ordinal of a word.
+	 * @return The position of the word within its MMAX file or -1 if it isn't known.
+	 */
+	public int getOrdinal() { return this.ordinal; }
+	
+	/**
+	 * Setter for the ordinal of a word (assigned by the MMAXParser).
+	 * @param ordinal The position of the word within its MMAX file.
+	 */
+	public void setOrdinal(int ordinal) { this.ordinal = ordinal; }
+	
+	/**
+	 * Checks whether two words of the same document denote the same position. The ordinals are
+	 * compared if both are known, the XML ids otherwise.
+	 * @param o The other word.
+	 * @return true if both words have the same id.
+	 */
+	public boolean hasSameId(Word o) {
+		if (this.ordinal >= 0 && o.ordinal >= 0) {
+			return this.ordinal == o.ordinal;
+		}
+		return this.xmlID.equals(o.xmlID);
+	}
+	
 	/**
 	 * Getter for the string representation of a word.
 	 * @return String representation of this word.
@@ -30,6 +30,9 @@ package de.uniheidelberg.cl.swp.featureExtraction;
 import weka.core.Attribute;
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
 import de.uniheidelberg.cl.swp.datastructure.Feature;
+import de.uniheidelberg.cl.swp.featureExtraction.features.FeatureType;
+import de.uniheidelberg.cl.swp.featureExtraction.features.NEType;
+import de.uniheidelberg.cl.swp.featureExtraction.features.POSTag;
 import de.uniheidelberg.cl.swp.io.Configuration;
 import de.uniheidelberg.cl.swp.util.MMAXParser;
 
@@ -40,8 +43,36 @@ import de.uniheidelberg.cl.swp.util.MMAXParser;
  * a {@link CoreferencePair}.<br>
  * The Feature Extractor is a unique object and adds a corresponding instance 
  * of {@link Feature} + the correct value for this feature.
+ * <br>
+ * Thread safety: a Feature Extractor is shared by all threads of a
+ * {@link FeatureExtractionProcess}, which calls {@link #extractFeature} concurrently for different
+ * pairs of a document. Implementations must not keep per-pair state in fields and may only write
+ * to their own slot of the feature vector; shared data has to be taken from the
+ * {@link PairContext}, which is confined to one thread.
  */
 public abstract class AbstractFeatureExtractor {
+	/**
+	 * Index of the value "true" of boolean attributes.
+	 */
+	public static final double TRUE = 0;
+	
+	/**
+	 * Index of the value "false" of boolean attributes.
+	 */
+	public static final double FALSE = 1;
+	
+	/**
+	 * Value of a feature which can't be determined for a pair (WEKA's missing value).
+	 */
+	public static final double MISSING = Double.NaN;
+	
+	/**
+	 * Markable levels of extractors which only need the words of a document.
+	 */
+	private static final String[] NO_LEVELS = {};
+	
+	private static final POSTag[] POS_TAGS = POSTag.values();
+	private static final NEType[] NE_TYPES = NEType.values();
 
 	protected  String name;	
 	
@@ -52,6 +83,21 @@ public abstract class AbstractFeatureExtractor {
 	 */
 	public String getName() { return name; }	
 	
+	/**
+	 * Returns the version of the extraction. Extractors have to increase it whenever they change
+	 * the extracted values, so that features stored by the {@link FeatureStore} are not reused.
+	 * @return The version of the extractor.
+	 */
+	public int getVersion() { return 1; }
+	
+	/**
+	 * Returns the configuration the extracted values depend on, e.g. a threshold or a lexicon
+	 * file. Like the version it is part of the key of the features stored by the
+	 * {@link FeatureStore}, but it is taken from the configuration instead of the code.
+	 * @return The parameters of the extractor or <code>null</code> if it has none.
+	 */
+	public String getParameters() { return null; }
+	
 	/**
 	 * Returns the {@link Attribute} which is used for Weka attributes. 
 	 * 
@@ -60,20 +106,119 @@ public abstract class AbstractFeatureExtractor {
 	public abstract Attribute getWekaAttribute();	
 	
 	/**
-	 * Extracts the features for a coreference pair.
-	 * @param corefPair The corefPair for which the feature should be extracted.
-	 * @param mmax The MMAX file for the {@link CoreferencePair}. This serves as 
-	 *   source for the feature values.
+	 * Extracts the feature value for a coreference pair and writes it into a slot of a feature
+	 * vector.
+	 * <br>
+	 * Numeric values are stored as they are, nominal values as the index of the value in the
+	 * {@link Attribute} of the extractor, i.e. the ordinal of a {@link POSTag} or {@link NEType}
+	 * and {@link #TRUE} or {@link #FALSE} for booleans. If the value can't be determined for the
+	 * pair (e.g. a word without a tag), the slot is set to {@link #MISSING} instead of throwing an
+	 * exception; exceptions are reserved for errors and are logged for every pair.
+	 * <br>
+	 * The words of the pair are already resolved by the {@link PairContext}, which is shared by
+	 * all extractors of the pair.
+	 * @param context The context of the corefPair for which the feature should be extracted.
+	 * @param vector The feature vector.
+	 * @param slot Position of this feature in the vector.
 	 */
-	public abstract void extractFeatures(CoreferencePair corefPair, MMAXParser mmax);	
+	public abstract void extractFeature(PairContext context, double[] vector, int slot);
 	
 	/**
-	 * Adds the extracted {@link Feature} value to the corresponding {@link CoreferencePair}.
-	 * @param feature The {@link Feature} which has been extracted.
-	 * @param corefPair The {@link CoreferencePair} to which the {@link Feature} value should
-	 *   be added.
+	 * Optional batch hook which extracts the feature for all pairs of a document at once, e.g. to
+	 * build per-document tables which answer every pair in constant time.
+	 * <br>
+	 * The values are written with {@link PairBatch#setValue(int, int, double)} in the encoding of
+	 * {@link #extractFeature(PairContext, double[], int)}; values of pairs which can't be
+	 * extracted are left missing. The hook is called on a single thread before the pairs are
+	 * extracted one by one.
+	 * @param batch The pairs of the document.
+	 * @param slot Position of this feature in the vectors.
+	 * @return <code>true</code> if the values have been written, <code>false</code> (the default)
+	 *   if the feature has to be extracted pair by pair.
 	 */
-	public void addFeatureToCoref(Feature<?> feature, CoreferencePair corefPair) {
-		corefPair.addFeature(feature);
+	public boolean extractBatch(PairBatch batch, int slot) {
+		return false;
 	}
+	
+	/**
+	 * Returns the markable levels the feature is extracted from. If a document isn't annotated
+	 * with one of them, the feature is missing for all pairs of the document and the extractor
+	 * isn't called.
+	 * @return Names of {@link MMAXParser#ANNOTATION_LEVELS}, none by default.
+	 */
+	public String[] getRequiredLevels() {
+		return NO_LEVELS;
+	}
+	
+	/**
+	 * Returns the {@link FeatureType} of the extracted values.
+	 * @return The type of the feature.
+	 */
+	public abstract FeatureType getFeatureType();
+	
+	/**
+	 * Returns the number of codes a nominal feature value can take in the feature vector.
+	 * @return The number of nominal values, 0 for numeric features.
+	 */
+	public int getValueCount() {
+		switch (getFeatureType()) {
+		case BOOLEAN:
+			return 2;
+		case POSTAG:
+			return POS_TAGS.length;
+		case NETYPE:
+			return NE_TYPES.length;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * Creates the {@link Feature} object for a value written by
+	 * {@link #extractFeature(PairContext, double[], int)}.
+	 * @param value The value of the feature.
+	 * @return The feature or <code>null</code> if the value is missing.
+	 */
+	public Feature<?> toFeature(double value) {
+		if (Double.isNaN(value)) return null;
+		
+		switch (getFeatureType()) {
+		case BOOLEAN:
+			Feature<Boolean> bool = new Feature<Boolean>(this.name);
+			bool.setValue(value == TRUE);
+			bool.setFtype(FeatureType.BOOLEAN);
+			return bool;
+		case POSTAG:
+			Feature<POSTag> pos = new Feature<POSTag>(this.name);
+			pos.setValue(POS_TAGS[(int) value]);
+			pos.setFtype(FeatureType.POSTAG);
+			return pos;
+		case NETYPE:
+			Feature<NEType> ne = new Feature<NEType>(this.name);
+			ne.setValue(NE_TYPES[(int) value]);
+			ne.setFtype(FeatureType.NETYPE);
+			return ne;
+		case NUMERIC:
+			/* integral values keep their integer representation (e.g. for feature filters) */
+			if (value == Math.rint(value) && Math.abs(value) <= Integer.MAX_VALUE) {
+				Feature<Integer> integer = new Feature<Integer>(this.name);
+				integer.setValue((int) value);
+				integer.setFtype(FeatureType.NUMERIC);
+				return integer;
+			}
+			Feature<Double> numeric = new Feature<Double>(this.name);
+			numeric.setValue(value);
+			numeric.setFtype(FeatureType.NUMERIC);
+			return numeric;
+		default:
+			throw new IllegalStateException("No numeric representation for " + this.name);
+		}
+	}
+	
+	/**
+	 * Encodes a boolean value as index of the values "true" and "false" of the {@link Attribute}.
+	 * @param value The boolean value.
+	 * @return {@link #TRUE} or {@link #FALSE}.
+	 */
+	protected static double encode(boolean value) { return value ? TRUE : FALSE; }
 }
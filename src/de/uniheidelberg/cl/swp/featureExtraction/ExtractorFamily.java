@@ -0,0 +1,47 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction
+ * class: ExtractorFamily
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction;
+
+import java.util.List;
+
+
+/**
+ * A group of feature extractors which is listed as a single entry of {@link FeatureExtractors},
+ * e.g. one extractor for each bucket of a hashed feature.
+ * <br>
+ * The members are ordinary feature extractors with an attribute each, but they are switched on
+ * and off together (e.g. by the {@link de.uniheidelberg.cl.swp.mlprocess.AblationTesting}).
+ */
+public interface ExtractorFamily {
+	/**
+	 * Creates the feature extractors of the family.
+	 * 
+	 * @return The members in the order of their attributes.
+	 */
+	List<AbstractFeatureExtractor> getMembers();
+}
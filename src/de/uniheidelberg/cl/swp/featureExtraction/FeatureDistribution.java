@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import de.uniheidelberg.cl.swp.io.Configuration;
 import de.uniheidelberg.cl.swp.io.MMAXFileFilter;
+import de.uniheidelberg.cl.swp.util.CorpusLoader;
 import de.uniheidelberg.cl.swp.util.MMAXParser;
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
 import de.uniheidelberg.cl.swp.datastructure.Feature;
@@ -140,8 +141,7 @@ public class FeatureDistribution {
 			e.printStackTrace();
 		}	
 		
-		for(String mmax : mmaxFiles){
-			MMAXParser mmaxParser = MMAXParser.processMMAXFile(mmax);
+		for(MMAXParser mmaxParser : new CorpusLoader(mmaxFiles)){
 			List<CoreferencePair> corefPairsGold = mmaxParser.getCorefPairs();					
 			
 			try{
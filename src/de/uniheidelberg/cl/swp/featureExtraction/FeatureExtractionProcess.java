@@ -29,19 +29,60 @@ package de.uniheidelberg.cl.swp.featureExtraction;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.datastructure.Mention;
+import de.uniheidelberg.cl.swp.datastructure.PairTable;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+import de.uniheidelberg.cl.swp.io.Configuration;
 import de.uniheidelberg.cl.swp.io.Logging;
+import de.uniheidelberg.cl.swp.util.DocumentIndex;
 import de.uniheidelberg.cl.swp.util.MMAXParser;
 
 
 /**
  * This class encapsulates the feature extraction process.
+ * <br>
+ * The pairs of a document are split into ranges which are extracted concurrently on a fork-join
+ * pool, the number of threads is taken from the config entry "FeatureExtractionThreads". Every
+ * pair is extracted by exactly one thread, so the feature vectors are the same as those of a
+ * sequential extraction. Extractors which provide a batch hook
+ * ({@link AbstractFeatureExtractor#extractBatch}) extract all pairs of the document beforehand.
+ * If the {@link FeatureStore} is enabled, the extracted features are stored on disk and reused
+ * as long as the document, the pairs and the feature extractors are unchanged.
  */
 public class FeatureExtractionProcess {
 	List<AbstractFeatureExtractor> featureExtractorList;
+	
+	/**
+	 * The cached mention properties of each document, shared by the pairs of all ACR-Systems.
+	 */
+	private final Map<MMAXParser, MentionProperties> mentionProperties = 
+		Collections.synchronizedMap(new WeakHashMap<MMAXParser, MentionProperties>());
+	
+	/**
+	 * Minimum number of pairs which are worth a task of their own in the parallel extraction.
+	 */
+	private static final int BATCH_SIZE = 256;
+	
+	/**
+	 * Number of threads for the extraction of a document (1 = sequential, 0 = not configured) and
+	 * the pool running them, which is created on first use.
+	 */
+	private final int parallelism = 
+		Configuration.getInstance().getThreadCount("FeatureExtractionThreads", 0);
+	private ForkJoinPool pool;
 
 	/**
 	 * Initializes the necessary data structures.
@@ -53,7 +94,7 @@ public class FeatureExtractionProcess {
 		
 		/* Iterate over feature extractors in Enum FeatureExtractors. */
 		for (FeatureExtractors fe : FeatureExtractors.values()) {
-			featureExtractorList.add(fe.getFe());
+			featureExtractorList.addAll(fe.getFes());
 		}
 	}
 	
@@ -82,21 +123,584 @@ public class FeatureExtractionProcess {
 		 * Extract ALL features (not only those used for evaluation). */
 		Logging.getInstance().getLogger().info("Extracting features");
 		
-		/* Extract the feature and add it to the feature vector. */
-		for (CoreferencePair corefPair : corefPairs) {	
-			/* If a feature vector already exists: delete it and start from scratch */
-			corefPair.getFeatuerVector().clear();
-			for (AbstractFeatureExtractor fe : this.featureExtractorList ) {
-				try {
-					fe.extractFeatures(corefPair, mmax);
-				} catch (Exception e) {
-					System.err.println("Couldn't extract feature " + fe.getName() + 
-					"- See the log file for error information.");
-					Logging.getInstance().getLogger().logrb(Level.SEVERE, "FeatureExtraction", 
-													"extractFeatures", null, fe.getName(), e);
+		/* If a feature vector already exists: start from scratch */
+		int size = this.featureExtractorList.size();
+		
+		for (CoreferencePair corefPair : corefPairs) {
+			double[] vector = corefPair.getFeatureValues();
+			
+			if (vector == null || vector.length != size) vector = new double[size];
+			Arrays.fill(vector, Double.NaN);
+			corefPair.setFeatureValues(this.featureExtractorList, vector);
+		}
+		
+		/* Reuse the features stored by an earlier run for the same pairs */
+		FeatureStore store = null;
+		
+		if (FeatureStore.isEnabled()) {
+			store = FeatureStore.forPairs(mmax, this.featureExtractorList, corefPairs);
+			double[] values = store.load(corefPairs.size(), size);
+			
+			if (values != null) {
+				for (int i = 0; i < corefPairs.size(); i++) {
+					System.arraycopy(values, i * size, corefPairs.get(i).getFeatureValues(), 0, size);
+				}
+				return;
+			}
+		}
+		
+		/* Extract the features into the slots of the feature vectors, first those of the 
+		 * extractors which handle the whole document at once, then the others pair by pair. */
+		MentionProperties mentions = getMentionProperties(mmax);
+		boolean[] batched = extractBatch(new ListBatch(corefPairs, mmax, mentions));
+		
+		run(new PairTask(corefPairs, mmax, mentions, batched, 0, corefPairs.size()));
+		
+		if (store != null) {
+			double[] values = new double[corefPairs.size() * size];
+			
+			for (int i = 0; i < corefPairs.size(); i++) {
+				System.arraycopy(corefPairs.get(i).getFeatureValues(), 0, values, i * size, size);
+			}
+			save(store, values, size);
+		}
+	}
+	
+	/**
+	 * Extract features for several lists of coreference pairs of the same document, e.g. the
+	 * predictions of all ACR-Systems.
+	 * <br>
+	 * Pairs whose antecedents and anaphors consist of the same words get the same features, so
+	 * each distinct pair is extracted only once and all identical pairs share its feature vector.
+	 * 
+	 * @param pairLists The lists of {@link CoreferencePair}s for which features will be
+	 * 		  extracted.
+	 * @param mmax The MMAX file (serves as source for feature values)
+	 * @throws IOException If the features couldn't be extracted.
+	 */
+	public void extractSharedFeatures(Collection<List<CoreferencePair>> pairLists,
+			MMAXParser mmax) throws IOException {
+		Map<String,CoreferencePair> distinct = new LinkedHashMap<String,CoreferencePair>();
+		List<CoreferencePair> duplicates = new ArrayList<CoreferencePair>();
+		List<CoreferencePair> originals = new ArrayList<CoreferencePair>();
+		StringBuilder key = new StringBuilder();
+		
+		for (List<CoreferencePair> corefPairs : pairLists) {
+			for (CoreferencePair corefPair : corefPairs) {
+				key.setLength(0);
+				appendWords(key, corefPair.getAntecedent());
+				key.append('|');
+				appendWords(key, corefPair.getAnaphor());
+				
+				CoreferencePair original = distinct.get(key.toString());
+				
+				if (original == null) {
+					distinct.put(key.toString(), corefPair);
+				} else if (original != corefPair) {
+					duplicates.add(corefPair);
+					originals.add(original);
 				}
+			}
+		}
+		Logging.getInstance().getLogger().info(distinct.size() + " distinct of " + 
+				(distinct.size() + duplicates.size()) + " pairs");
+		
+		extractFeatures(new ArrayList<CoreferencePair>(distinct.values()), mmax);
+		
+		for (int i = 0; i < duplicates.size(); i++) {
+			duplicates.get(i).setFeatureValues(this.featureExtractorList,
+					originals.get(i).getFeatureValues());
+		}
+	}
+	
+	/**
+	 * Appends the xml ids of the words of a mention to a key.
+	 */
+	private static void appendWords(StringBuilder key, Mention mention) {
+		for (Word word : mention.getWordList()) {
+			key.append(word.getXmlId()).append(' ');
+		}
+	}
+	
+	/**
+	 * Extracts the features for a range of coreference pairs.
+	 * 
+	 * @param corefPairs The {@link CoreferencePair}s.
+	 * @param from Index of the first pair.
+	 * @param to Index after the last pair.
+	 * @param mmax The MMAX file (serves as source for feature values)
+	 * @param mentions The cached mention properties of the MMAX file.
+	 * @param batched The slots which have already been extracted for the whole document.
+	 */
+	private void extractFeatures(List<CoreferencePair> corefPairs, int from, int to,
+			MMAXParser mmax, MentionProperties mentions, boolean[] batched) {
+		PairContext context = new PairContext(mmax, mentions);
+		
+		for (CoreferencePair corefPair : corefPairs.subList(from, to)) {	
+			context.setPair(corefPair);
+			extractFeatures(context, corefPair.getFeatureValues(), batched);
+		}
+	}
+	
+	/**
+	 * Lets every feature extractor write its value into its slot of the vector. Features which
+	 * couldn't be extracted are left missing.
+	 * 
+	 * @param context The context of the {@link CoreferencePair}.
+	 * @param vector The feature vector, one slot for each feature extractor.
+	 * @param batched The slots which have already been extracted for the whole document.
+	 */
+	private void extractFeatures(PairContext context, double[] vector, boolean[] batched) {
+		for (int slot = 0; slot < vector.length; slot++) {
+			if (batched[slot]) continue;
+			AbstractFeatureExtractor fe = this.featureExtractorList.get(slot);
+			
+			try {
+				fe.extractFeature(context, vector, slot);
+			} catch (Exception e) {
+				logFailure(fe, e);
+			}
+		}
+	}
+	
+	/**
+	 * Extracts a single feature of a pair, e.g. when a classifier requests its value.
+	 * 
+	 * @param context The context of the {@link CoreferencePair}.
+	 * @param slot Slot of the feature extractor.
+	 * @return The value in the encoding of the feature vectors or
+	 * 		   {@link AbstractFeatureExtractor#MISSING} if it couldn't be extracted.
+	 */
+	public double extractFeature(PairContext context, int slot) {
+		AbstractFeatureExtractor fe = this.featureExtractorList.get(slot);
+		double[] vector = new double[slot + 1];
+		vector[slot] = AbstractFeatureExtractor.MISSING;
+		
+		try {
+			fe.extractFeature(context, vector, slot);
+		} catch (Exception e) {
+			logFailure(fe, e);
+			return AbstractFeatureExtractor.MISSING;
+		}
+		return vector[slot];
+	}
+	
+	/**
+	 * Checks which features can be extracted from a document, i.e. whose markable levels exist.
+	 * Each missing level is reported once per document.
+	 * 
+	 * @param mmax The MMAX file.
+	 * @return For each slot, whether the feature can be extracted.
+	 */
+	public boolean[] getAvailableFeatures(MMAXParser mmax) {
+		boolean[] available = new boolean[this.featureExtractorList.size()];
+		
+		for (int slot = 0; slot < available.length; slot++) {
+			available[slot] = hasLevels(this.featureExtractorList.get(slot), mmax);
+		}
+		return available;
+	}
+	
+	/**
+	 * Lets every feature extractor with a batch hook extract its feature for all pairs of a
+	 * document. If the hook fails, the feature is extracted pair by pair. Features whose markable
+	 * levels are missing in the document are left missing for all pairs.
+	 * 
+	 * @param batch The pairs of the document with reset feature vectors.
+	 * @return The slots which have been extracted or are missing for the whole document.
+	 */
+	private boolean[] extractBatch(PairBatch batch) {
+		boolean[] batched = new boolean[this.featureExtractorList.size()];
+		
+		if (batch.size() == 0) return batched;
+		
+		for (int slot = 0; slot < batched.length; slot++) {
+			AbstractFeatureExtractor fe = this.featureExtractorList.get(slot);
+			
+			/* features without their markable levels stay missing and are skipped like batched ones */
+			if (! hasLevels(fe, batch.getMmax())) {
+				batched[slot] = true;
+				continue;
+			}
+			
+			try {
+				batched[slot] = fe.extractBatch(batch, slot);
+			} catch (Exception e) {
+				logFailure(fe, e);
 				
-			}			
+				/* discard the values which have been written before the failure */
+				for (int i = 0; i < batch.size(); i++) {
+					batch.setValue(i, slot, Double.NaN);
+				}
+			}
+		}
+		return batched;
+	}
+	
+	/**
+	 * Checks whether a document is annotated with the markable levels of a feature extractor and
+	 * reports each missing level once per document.
+	 * 
+	 * @param fe The feature extractor.
+	 * @param mmax The MMAX file.
+	 * @return true if all levels exist.
+	 */
+	private boolean hasLevels(AbstractFeatureExtractor fe, MMAXParser mmax) {
+		DocumentIndex index = mmax.getDocumentIndex();
+		
+		for (String level : fe.getRequiredLevels()) {
+			if (! index.hasLevel(level)) {
+				if (index.markReported(level)) {
+					Logging.getInstance().getLogger().warning("No " + level + " level in " + 
+							mmax.getFileName() + ", features using it are missing");
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Reports a feature which couldn't be extracted.
+	 * 
+	 * @param fe The feature extractor.
+	 * @param e The cause.
+	 */
+	private void logFailure(AbstractFeatureExtractor fe, Exception e) {
+		/* the logger synchronizes the output of concurrent extractions */
+		System.err.println("Couldn't extract feature " + fe.getName() + 
+		"- See the log file for error information.");
+		Logging.getInstance().getLogger().logrb(Level.SEVERE, "FeatureExtraction", 
+										"extractFeatures", null, fe.getName(), e);
+	}
+	
+	/**
+	 * Extract features for the pairs of a {@link PairTable} and store them in its feature matrix,
+	 * one column for each feature extractor.
+	 * <br>
+	 * The extractors work on a single {@link CoreferencePair} whose mentions are pointed to the
+	 * words of each row in turn, so no pair objects are created for the rows. Features which
+	 * couldn't be extracted are stored as missing values.
+	 * 
+	 * @param table The pairs for which features will be extracted.
+	 */
+	public void extractFeatures(PairTable table) {
+		Logging.getInstance().getLogger().info("Extracting features");
+		
+		int columns = this.featureExtractorList.size();
+		table.setFeatureExtractors(this.featureExtractorList);
+		
+		/* Reuse the features stored by an earlier run for the same pairs */
+		FeatureStore store = null;
+		double[] vector = new double[columns];
+		
+		if (FeatureStore.isEnabled()) {
+			store = FeatureStore.forTable(table, this.featureExtractorList);
+			double[] values = store.load(table.size(), columns);
+			
+			if (values != null) {
+				for (int row = 0; row < table.size(); row++) {
+					System.arraycopy(values, row * columns, vector, 0, columns);
+					table.setFeatures(row, vector);
+				}
+				return;
+			}
+		}
+		
+		MentionProperties mentions = getMentionProperties(table.getMmax());
+		boolean[] batched = extractBatch(new TableBatch(table, mentions));
+		
+		run(new TableTask(table, mentions, batched, 0, table.size()));
+		
+		if (store != null) {
+			double[] values = new double[table.size() * columns];
+			
+			for (int row = 0; row < table.size(); row++) {
+				table.getFeatures(row, vector);
+				System.arraycopy(vector, 0, values, row * columns, columns);
+			}
+			save(store, values, columns);
+		}
+	}
+	
+	/**
+	 * Stores an extracted feature matrix. A matrix which couldn't be stored is only reported,
+	 * since it will simply be extracted again by the next run.
+	 * 
+	 * @param store The store of the pairs.
+	 * @param values The values row by row.
+	 * @param columns The number of features.
+	 */
+	private void save(FeatureStore store, double[] values, int columns) {
+		try {
+			store.save(values, columns);
+		} catch (IOException e) {
+			Logging.getInstance().getLogger().warning("Couldn't store features " + 
+					store.getFile() + ": " + e);
+		}
+	}
+	
+	/**
+	 * Extracts the features for a range of rows of a {@link PairTable}.
+	 * <br>
+	 * Each call uses its own {@link RowPair} and feature vector, so ranges can be processed
+	 * concurrently.
+	 * 
+	 * @param table The pairs for which features will be extracted.
+	 * @param from First row.
+	 * @param to Row after the last row.
+	 * @param mentions The cached mention properties of the MMAX file.
+	 * @param batched The slots which have already been extracted for the whole document.
+	 */
+	private void extractFeatures(PairTable table, int from, int to, MentionProperties mentions,
+			boolean[] batched) {
+		RowPair corefPair = new RowPair(table);
+		double[] vector = new double[this.featureExtractorList.size()];
+		PairContext context = new PairContext(table.getMmax(), mentions);
+		
+		for (int row = from; row < to; row++) {
+			/* start from the reset row, which only contains the batch values */
+			table.getFeatures(row, vector);
+			context.setPair(corefPair.moveTo(row));
+			extractFeatures(context, vector, batched);
+			table.setFeatures(row, vector);
+		}
+	}
+	
+	/**
+	 * Runs an extraction task.
+	 * <br>
+	 * Small tasks and a single configured thread run sequentially on the calling thread. Tasks
+	 * started from a fork-join pool (e.g. a document processed concurrently by
+	 * {@link de.uniheidelberg.cl.swp.mlprocess.MLProcess}) also run sequentially, since the
+	 * documents already occupy the threads of the pool, unless a number of threads has been
+	 * configured. Then they are split within that pool, so no further threads are started. All
+	 * other tasks run on the pool of this process, by default one thread per processor.
+	 * 
+	 * @param task The extraction task covering all pairs.
+	 */
+	private void run(RangeTask task) {
+		boolean inPool = ForkJoinTask.inForkJoinPool();
+		
+		if (this.parallelism == 1 || task.to - task.from <= BATCH_SIZE ||
+				(inPool && this.parallelism == 0)) {
+			task.extract();
+		} else if (inPool) {
+			task.invoke();
+		} else {
+			getPool().invoke(task);
+		}
+	}
+	
+	/**
+	 * Returns the pool for parallel extraction, which is created on first use.
+	 * 
+	 * @return The pool of this process.
+	 */
+	private synchronized ForkJoinPool getPool() {
+		if (this.pool == null) {
+			this.pool = new ForkJoinPool(this.parallelism > 0 ? this.parallelism :
+				Runtime.getRuntime().availableProcessors());
+		}
+		return this.pool;
+	}
+	
+	/**
+	 * A range of pairs which is split in halves until it is small enough to be extracted by a
+	 * single thread.
+	 */
+	private abstract static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		protected final int from;
+		protected final int to;
+		
+		protected RangeTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		/**
+		 * Extracts the features for the whole range.
+		 */
+		protected abstract void extract();
+		
+		/**
+		 * Creates the task for a part of the range.
+		 */
+		protected abstract RangeTask subTask(int from, int to);
+		
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				extract();
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(subTask(from, middle), subTask(middle, to));
+			}
+		}
+	}
+	
+	/**
+	 * Extracts the features for a range of a list of {@link CoreferencePair}s.
+	 */
+	private class PairTask extends RangeTask {
+		private static final long serialVersionUID = 1L;
+		
+		private final List<CoreferencePair> corefPairs;
+		private final MMAXParser mmax;
+		private final MentionProperties mentions;
+		private final boolean[] batched;
+		
+		PairTask(List<CoreferencePair> corefPairs, MMAXParser mmax, MentionProperties mentions,
+				boolean[] batched, int from, int to) {
+			super(from, to);
+			this.corefPairs = corefPairs;
+			this.mmax = mmax;
+			this.mentions = mentions;
+			this.batched = batched;
+		}
+		
+		@Override
+		protected void extract() {
+			extractFeatures(corefPairs, from, to, mmax, mentions, batched);
+		}
+		
+		@Override
+		protected RangeTask subTask(int from, int to) {
+			return new PairTask(corefPairs, mmax, mentions, batched, from, to);
+		}
+	}
+	
+	/**
+	 * Extracts the features for a range of rows of a {@link PairTable}.
+	 */
+	private class TableTask extends RangeTask {
+		private static final long serialVersionUID = 1L;
+		
+		private final PairTable table;
+		private final MentionProperties mentions;
+		private final boolean[] batched;
+		
+		TableTask(PairTable table, MentionProperties mentions, boolean[] batched, int from,
+				int to) {
+			super(from, to);
+			this.table = table;
+			this.mentions = mentions;
+			this.batched = batched;
+		}
+		
+		@Override
+		protected void extract() {
+			extractFeatures(table, from, to, mentions, batched);
+		}
+		
+		@Override
+		protected RangeTask subTask(int from, int to) {
+			return new TableTask(table, mentions, batched, from, to);
+		}
+	}
+	
+	/**
+	 * A single {@link CoreferencePair} whose mentions are pointed to the words of the rows of a
+	 * {@link PairTable} in turn.
+	 */
+	private static class RowPair extends CoreferencePair {
+		private final PairTable table;
+		
+		RowPair(PairTable table) {
+			super(new Mention(), new Mention());
+			this.table = table;
+			setMmax(table.getMmax());
+		}
+		
+		/**
+		 * Points the pair to a row.
+		 * 
+		 * @param row Row of the pair.
+		 * @return This pair.
+		 */
+		RowPair moveTo(int row) {
+			getAntecedent().setWordList(table.getAntecedentWords(row));
+			getAnaphor().setWordList(table.getAnaphorWords(row));
+			setDirectNeighbor(table.isDirectNeighbor(row));
+			setAcrSystem(table.getAcrSystem(row));
+			return this;
+		}
+	}
+	
+	/**
+	 * The pairs of a list as a {@link PairBatch}, whose values are written into the feature
+	 * vectors of the pairs.
+	 */
+	private static class ListBatch extends PairBatch {
+		private final List<CoreferencePair> corefPairs;
+		
+		ListBatch(List<CoreferencePair> corefPairs, MMAXParser mmax, MentionProperties mentions) {
+			super(mmax, mentions);
+			this.corefPairs = corefPairs;
+		}
+		
+		@Override
+		public int size() { return corefPairs.size(); }
+		
+		@Override
+		protected CoreferencePair getPair(int i) { return corefPairs.get(i); }
+		
+		@Override
+		public int getAnaphorOrdinal(int i) {
+			return getMentions().getOrdinal(corefPairs.get(i).getAnaphor());
+		}
+		
+		@Override
+		public void setValue(int i, int slot, double value) {
+			corefPairs.get(i).getFeatureValues()[slot] = value;
+		}
+	}
+	
+	/**
+	 * The rows of a {@link PairTable} as a {@link PairBatch}, whose values are written into the
+	 * feature matrix of the table.
+	 */
+	private static class TableBatch extends PairBatch {
+		private final PairTable table;
+		private final RowPair corefPair;
+		
+		TableBatch(PairTable table, MentionProperties mentions) {
+			super(table.getMmax(), mentions);
+			this.table = table;
+			this.corefPair = new RowPair(table);
+		}
+		
+		@Override
+		public int size() { return table.size(); }
+		
+		@Override
+		protected CoreferencePair getPair(int i) { return corefPair.moveTo(i); }
+		
+		@Override
+		public int getAnaphorOrdinal(int i) { return table.getAnaphorOrdinal(i); }
+		
+		@Override
+		public void setValue(int i, int slot, double value) { table.setFeature(i, slot, value); }
+	}
+	
+	/**
+	 * Returns the cached mention properties of a document, which are created on first access and
+	 * released together with the document.
+	 * 
+	 * @param mmax The MMAX file.
+	 * @return The {@link MentionProperties} of the MMAX file.
+	 */
+	public MentionProperties getMentionProperties(MMAXParser mmax) {
+		synchronized (this.mentionProperties) {
+			MentionProperties mentions = this.mentionProperties.get(mmax);
+			
+			if (mentions == null) {
+				mentions = new MentionProperties(mmax);
+				this.mentionProperties.put(mmax, mentions);
+			}
+			return mentions;
 		}
 	}
 	
@@ -27,6 +27,9 @@
  */
 package de.uniheidelberg.cl.swp.featureExtraction;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * An enumeration containing all the feature extractors.
@@ -71,7 +74,22 @@ public enum FeatureExtractors {
 	/**
 	 * See {@link features.FE_neType}.
 	 */
-	FE_NETYPE ("features.FE_neType");
+	FE_NETYPE ("features.FE_neType"),
+	
+	/**
+	 * See {@link features.LexicalHashFamily}.
+	 */
+	FE_LEXICALHASH ("features.LexicalHashFamily"),
+	
+	/**
+	 * See {@link features.StringSimilarityFamily}.
+	 */
+	FE_STRINGSIMILARITY ("features.StringSimilarityFamily"),
+	
+	/**
+	 * See {@link features.AgreementFamily}.
+	 */
+	FE_AGREEMENT ("features.AgreementFamily");
 			
 	private final String fe;
 	
@@ -86,12 +104,42 @@ public enum FeatureExtractors {
 	 * This method looks up the class name for the corresponding {@link FeatureExtractors} and 
 	 * returns a new instance of it.
 	 * 
-	 * @return an instance of the corresponding {@link AbstractFeatureExtractor}.
+	 * @return an instance of the corresponding {@link AbstractFeatureExtractor} or
+	 *   <code>null</code> if the entry is an {@link ExtractorFamily}.
 	 */
 	public AbstractFeatureExtractor getFe() {
+		Object fe = newInstance();
+		
+		return fe instanceof AbstractFeatureExtractor ? (AbstractFeatureExtractor) fe : null;
+	}
+	
+	/**
+	 * Returns the feature extractors of this entry, i.e. the single extractor or all members of
+	 * an {@link ExtractorFamily}.
+	 * 
+	 * @return New instances of the feature extractors.
+	 */
+	public List<AbstractFeatureExtractor> getFes() {
+		Object fe = newInstance();
+		
+		if (fe instanceof ExtractorFamily) {
+			return ((ExtractorFamily) fe).getMembers();
+		}
+		List<AbstractFeatureExtractor> fes = new ArrayList<AbstractFeatureExtractor>(1);
+		
+		if (fe != null) fes.add((AbstractFeatureExtractor) fe);
+		return fes;
+	}
+	
+	/**
+	 * Creates an instance of the class of this entry.
+	 * 
+	 * @return The instance or <code>null</code> if it couldn't be created.
+	 */
+	private Object newInstance() {
 		String feName = "de.uniheidelberg.cl.swp.featureExtraction." + this.fe; 
 		try {
-			return (AbstractFeatureExtractor) Class.forName(feName).newInstance();
+			return Class.forName(feName).newInstance();
 		} catch (InstantiationException e) {
 			System.err.println("Cannot instanciate " +feName +"!");
 			e.printStackTrace();
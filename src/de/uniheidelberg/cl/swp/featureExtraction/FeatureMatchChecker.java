@@ -33,6 +33,7 @@ import java.util.logging.Logger;
 
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
 import de.uniheidelberg.cl.swp.datastructure.Feature;
+import de.uniheidelberg.cl.swp.datastructure.PairTable;
 import de.uniheidelberg.cl.swp.io.Configuration;
 import de.uniheidelberg.cl.swp.io.Logging;
 
@@ -77,6 +78,68 @@ public class FeatureMatchChecker {
 		this.log.info(targetList.size() + " coref pairs matched the required features");
 		return targetList;		
 	}
+	
+	/**
+	 * Filters out the pairs of a {@link PairTable} which don't match the required features and
+	 * therefore shouldn't be evaluated.
+	 * 
+	 * @param table The pairs which will be filtered, with extracted features.
+	 * @return Table of the pairs which should be evaluated, the given table if no feature filter
+	 * 		   is set.
+	 */
+	public PairTable filterNonMatchingFeatures(PairTable table) {
+		List<String> filter = this.config.getFeatureFilter();
+		
+		if (filter == null) return table;
+		this.log.info("Filtering out non-matching corefpairs");
+		
+		int[] columns = new int[filter.size()];
+		int[] rows = new int[table.size()];
+		int count = 0;
+		
+		for (int i = 0; i < columns.length; i++) {
+			String fe = filter.get(i);
+			columns[i] = -1;
+			
+			for (int column = 0; column < table.getFeatureCount(); column++) {
+				if (table.getFeatureName(column).equals(fe)) columns[i] = column;
+			}
+			if (columns[i] < 0) {
+				this.log.severe("Could not find feature extractor " + fe);
+				throw new IllegalArgumentException("Could not find feature " + fe);
+			}
+		}
+		for (int row = 0; row < table.size(); row++) {
+			if (doesMatchRequiredFeatures(table, row, columns)) rows[count++] = row;
+		}
+		this.log.info(count + " coref pairs matched the required features");
+		return table.select(rows, null, count);
+	}
+	
+	/**
+	 * Checks whether a row of a {@link PairTable} shows the feature values which have been
+	 * specified by the user.
+	 * 
+	 * @param table The pairs with extracted features.
+	 * @param row Row of the checked pair.
+	 * @param columns Column of each feature filter.
+	 * @return true if the pair should be used for testing, false otherwise.
+	 */
+	private boolean doesMatchRequiredFeatures(PairTable table, int row, int[] columns) {
+		for (int column : columns) {
+			Feature<?> fe = table.getFeatureExtractors().get(column).toFeature(
+					table.getFeature(row, column));
+			
+			/* a missing value isn't part of the feature vector of a CoreferencePair */
+			if (fe == null) {
+				this.log.severe("Could not find feature extractor " + table.getFeatureName(column));
+				throw new IllegalArgumentException("Could not find feature " +
+						table.getFeatureName(column));
+			}
+			if (! doesMatch(fe)) return false;
+		}
+		return true;
+	}
 		
 	/**
 	 * Checks whether the current coreference pair shows feature values which have 
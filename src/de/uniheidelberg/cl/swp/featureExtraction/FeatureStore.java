@@ -0,0 +1,327 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction
+ * class: FeatureStore
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.datastructure.PairTable;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+import de.uniheidelberg.cl.swp.io.Configuration;
+import de.uniheidelberg.cl.swp.io.Logging;
+import de.uniheidelberg.cl.swp.util.MMAXParser;
+
+
+/**
+ * An on-disk store for the extracted feature matrices of the pair sets of a document (e.g. the
+ * gold standard or the predictions of an ACR-System).
+ * <br>
+ * <p>A matrix is identified by a digest of the parsed document (the words and the tags of the
+ * {@link MMAXParser#ANNOTATION_LEVELS}), of the feature extractors (name, class,
+ * {@link AbstractFeatureExtractor#getVersion() version} and
+ * {@link AbstractFeatureExtractor#getParameters() parameters}) and of the words of the pairs, so
+ * it is only used as long as all of them are unchanged. The matrix of <code>corpus/file.mmax</code> is
+ * stored as <code>corpus/features/file.mmax.&lt;digest&gt;.feat</code>. The store is switched on
+ * by the "FeatureStore" entry in the {@link Configuration}.</p>
+ * <br>
+ * <p>File format (all numbers are big-endian): magic, version, length and bytes of the digest,
+ * number of rows, number of columns, the values row by row as doubles (NaN = missing).</p>
+ */
+public class FeatureStore {
+	private static final int MAGIC = 0x454c4146;
+	private static final int VERSION = 1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	/**
+	 * The digests of the parsed documents, computed once per document.
+	 */
+	private static final Map<MMAXParser, byte[]> documentDigests = 
+		Collections.synchronizedMap(new WeakHashMap<MMAXParser, byte[]>());
+	
+	private final File file;
+	private final byte[] digest;
+	
+	/**
+	 * Stores are only created by {@link #forPairs} and {@link #forTable}.
+	 */
+	private FeatureStore(MMAXParser mmax, MessageDigest digest) {
+		this.digest = digest.digest();
+		
+		StringBuilder name = new StringBuilder(new File(mmax.getFileName()).getName()).append('.');
+		
+		for (int i = 0; i < 8; i++) {
+			name.append(String.format("%02x", this.digest[i]));
+		}
+		File directory = new File(new File(mmax.getFileName()).getAbsoluteFile().getParentFile(),
+				"features");
+		this.file = new File(directory, name.append(".feat").toString());
+	}
+	
+	/**
+	 * Checks whether the feature store is enabled by the {@link Configuration}.
+	 * 
+	 * @return true if feature matrices should be read and written.
+	 */
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(
+				Configuration.getInstance().getProperties().getProperty("FeatureStore"));
+	}
+	
+	/**
+	 * Returns the store of the features of a list of pairs.
+	 * 
+	 * @param mmax The document of the pairs.
+	 * @param extractors The feature extractors, one for each column.
+	 * @param corefPairs The {@link CoreferencePair}s, one for each row.
+	 * @return The store.
+	 */
+	public static FeatureStore forPairs(MMAXParser mmax, List<AbstractFeatureExtractor> extractors,
+			List<CoreferencePair> corefPairs) {
+		MessageDigest digest = createDigest(mmax, extractors);
+		
+		update(digest, corefPairs.size());
+		
+		for (CoreferencePair corefPair : corefPairs) {
+			update(digest, corefPair.getAntecedent().getWordList());
+			update(digest, corefPair.getAnaphor().getWordList());
+		}
+		return new FeatureStore(mmax, digest);
+	}
+	
+	/**
+	 * Returns the store of the features of the pairs of a {@link PairTable}.
+	 * 
+	 * @param table The pairs, one for each row.
+	 * @param extractors The feature extractors, one for each column.
+	 * @return The store.
+	 */
+	public static FeatureStore forTable(PairTable table, List<AbstractFeatureExtractor> extractors) {
+		MessageDigest digest = createDigest(table.getMmax(), extractors);
+		
+		update(digest, table.size());
+		
+		for (int row = 0; row < table.size(); row++) {
+			update(digest, table.getAntecedentWords(row));
+			update(digest, table.getAnaphorWords(row));
+		}
+		return new FeatureStore(table.getMmax(), digest);
+	}
+	
+	/**
+	 * Starts a digest with the document and the feature extractors.
+	 */
+	private static MessageDigest createDigest(MMAXParser mmax,
+			List<AbstractFeatureExtractor> extractors) {
+		MessageDigest digest = newDigest();
+		
+		digest.update(getDocumentDigest(mmax));
+		update(digest, extractors.size());
+		
+		for (AbstractFeatureExtractor fe : extractors) {
+			update(digest, fe.getName());
+			update(digest, fe.getClass().getName());
+			update(digest, fe.getVersion());
+			update(digest, fe.getParameters());
+		}
+		return digest;
+	}
+	
+	/**
+	 * Returns the digest of the words and annotation levels of a document.
+	 */
+	private static byte[] getDocumentDigest(MMAXParser mmax) {
+		byte[] documentDigest = documentDigests.get(mmax);
+		
+		if (documentDigest == null) {
+			MessageDigest digest = newDigest();
+			
+			update(digest, mmax.getWordList());
+			
+			for (Word word : mmax.getWordList()) {
+				update(digest, word.getToken());
+			}
+			
+			for (String level : MMAXParser.ANNOTATION_LEVELS) {
+				String[] tags = mmax.getMarkableTags(level);
+				
+				update(digest, level);
+				update(digest, tags == null ? -1 : tags.length);
+				
+				if (tags == null) continue;
+				
+				for (String tag : tags) { update(digest, tag); }
+			}
+			documentDigest = digest.digest();
+			documentDigests.put(mmax, documentDigest);
+		}
+		return documentDigest;
+	}
+	
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static void update(MessageDigest digest, int value) {
+		digest.update(ByteBuffer.allocate(4).putInt(value).array());
+	}
+	
+	private static void update(MessageDigest digest, String value) {
+		if (value == null) {
+			update(digest, -1);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF8);
+		
+		update(digest, bytes.length);
+		digest.update(bytes);
+	}
+	
+	private static void update(MessageDigest digest, List<Word> words) {
+		update(digest, words.size());
+		
+		for (Word word : words) { update(digest, word.getXmlId()); }
+	}
+	
+	/**
+	 * Getter for the file of the stored matrix.
+	 * 
+	 * @return The file.
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Loads the stored feature matrix.
+	 * 
+	 * @param rows Expected number of rows.
+	 * @param columns Expected number of columns.
+	 * @return The values row by row or null if no matrix has been stored for these pairs.
+	 */
+	public double[] load(int rows, int columns) {
+		if (! file.exists()) {
+			return null;
+		}
+		
+		try {
+			FileInputStream in = new FileInputStream(file);
+			
+			try {
+				FileChannel channel = in.getChannel();
+				
+				return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), rows,
+						columns);
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			Logging.getInstance().getLogger().warning("Couldn't read features " + file + ": " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads a matrix from a buffer.
+	 * 
+	 * @return The values or null if the matrix belongs to other pairs.
+	 */
+	private double[] read(ByteBuffer buffer, int rows, int columns) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a feature file");
+		}
+		if (buffer.getInt() != VERSION) {
+			return null;
+		}
+		byte[] storedDigest = new byte[buffer.getInt()];
+		buffer.get(storedDigest);
+		
+		if (! Arrays.equals(storedDigest, digest) || buffer.getInt() != rows || 
+				buffer.getInt() != columns) {
+			return null;
+		}
+		double[] values = new double[rows * columns];
+		buffer.asDoubleBuffer().get(values);
+		
+		return values;
+	}
+	
+	/**
+	 * Stores a feature matrix.
+	 * <br>
+	 * The matrix is written to a temporary file first, so that it is never read while it is
+	 * being written.
+	 * 
+	 * @param values The values row by row.
+	 * @param columns The number of columns.
+	 * @throws IOException If the matrix couldn't be written.
+	 */
+	public void save(double[] values, int columns) throws IOException {
+		file.getParentFile().mkdirs();
+		File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile)));
+		
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(digest.length);
+			out.write(digest);
+			out.writeInt(columns == 0 ? 0 : values.length / columns);
+			out.writeInt(columns);
+			
+			for (double value : values) {
+				out.writeDouble(value);
+			}
+		} finally {
+			out.close();
+		}
+		
+		if (file.exists() && ! file.delete() || ! tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Couldn't replace " + file);
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction
+ * class: MentionProperties
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import de.uniheidelberg.cl.swp.datastructure.Mention;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+import de.uniheidelberg.cl.swp.featureExtraction.features.NEType;
+import de.uniheidelberg.cl.swp.featureExtraction.features.POSTag;
+import de.uniheidelberg.cl.swp.util.AgreementLexicon;
+import de.uniheidelberg.cl.swp.util.DocumentIndex;
+import de.uniheidelberg.cl.swp.util.MMAXParser;
+
+/**
+ * Per-document cache of the mention-level properties used by the feature extractors.
+ * <br>
+ * <p>The same mention is part of many
+ * {@link de.uniheidelberg.cl.swp.datastructure.CoreferencePair}s and is predicted by several
+ * ACR-Systems, so its properties are computed once from the {@link DocumentIndex} on first
+ * access and stored by the ordinal of its first word. The properties are deterministic, so
+ * concurrent threads may compute the same value twice but will never see a wrong one.</p>
+ */
+public class MentionProperties {
+	private static final POSTag[] POS_TAGS = POSTag.values();
+	private static final NEType[] NE_TYPES = NEType.values();
+
+	/**
+	 * Codes of a subject entry.
+	 */
+	private static final byte SUBJECT = 1;
+	private static final byte NO_SUBJECT = 2;
+	private static final byte NO_DEPREL = 3;
+
+	/**
+	 * Named entity code of a word without an enamex tag and POS code of a word without a POS tag.
+	 */
+	private static final byte NO_ENTITY = -1;
+	private static final byte NO_POS = -1;
+
+	private final DocumentIndex index;
+	private final List<Word> words;
+
+	/**
+	 * Cached values indexed by word ordinal, 0 means not computed yet. POS tags and NE types are
+	 * stored as ordinal + 1, the pronoun counts of a sentence as count + 1 at its first word.
+	 */
+	private final byte[] posTags;
+	private final byte[] subjects;
+	private final byte[] neTypes;
+	private final int[] pronounCounts;
+
+	/**
+	 * Hash codes of the lower-cased tokens indexed by word ordinal, 0 means not computed yet (a
+	 * token whose hash is 0 is stored as 1).
+	 */
+	private final int[] tokenHashes;
+
+	/**
+	 * Normalized strings of the mentions by the key of the mention (see {@link #getKey}).
+	 */
+	private final Map<Long, NormalizedMention> normalizedMentions;
+
+	/**
+	 * Gender and number codes of the {@link AgreementLexicon} by the same keys.
+	 */
+	private final Map<Long, Byte> agreements;
+
+	/**
+	 * Creates an empty cache for a document.
+	 * 
+	 * @param mmax The document.
+	 */
+	public MentionProperties(MMAXParser mmax) {
+		this.index = mmax.getDocumentIndex();
+		this.words = mmax.getWordList();
+		this.posTags = new byte[index.size()];
+		this.subjects = new byte[index.size()];
+		this.neTypes = new byte[index.size()];
+		this.pronounCounts = new int[index.size()];
+		this.tokenHashes = new int[index.size()];
+		this.normalizedMentions = new ConcurrentHashMap<Long, NormalizedMention>();
+		this.agreements = new ConcurrentHashMap<Long, Byte>();
+	}
+
+	/**
+	 * Returns the ordinal of the first word of a mention, which is the key of its properties.
+	 * 
+	 * @param mention The mention.
+	 * @return The ordinal or -1 if the word isn't part of the document.
+	 */
+	public int getOrdinal(Mention mention) {
+		return index.getOrdinal(mention.getWordList().get(0));
+	}
+
+	/**
+	 * Returns the POS tag of the first word of a mention.
+	 * 
+	 * @param ordinal Ordinal of the first word (-1 = not part of the document).
+	 * @return The matching {@link POSTag} or <code>null</code> if the word has no POS tag.
+	 */
+	public POSTag getPosTag(int ordinal) {
+		if (ordinal < 0) return null;
+		if (posTags[ordinal] == 0) {
+			String pos = index.getPosTag(ordinal);
+			posTags[ordinal] = pos == null ? 
+					NO_POS : (byte) (POSTag.getMatchingPosType(pos.toLowerCase()).ordinal() + 1);
+		}
+		return posTags[ordinal] == NO_POS ? null : POS_TAGS[posTags[ordinal] - 1];
+	}
+
+	/**
+	 * Returns whether the first word of a mention is the subject of its sentence.
+	 * 
+	 * @param ordinal Ordinal of the first word (-1 = not part of the document).
+	 * @return {@link Boolean#TRUE} for a subject or <code>null</code> if the word has no
+	 *   dependency relation.
+	 */
+	public Boolean isSubject(int ordinal) {
+		if (ordinal < 0) return null;
+		if (subjects[ordinal] == 0) {
+			String deprel = index.getDeprelTag(ordinal);
+
+			if (deprel == null) subjects[ordinal] = NO_DEPREL;
+			else subjects[ordinal] = deprel.equals("sbj") ? SUBJECT : NO_SUBJECT;
+		}
+		switch (subjects[ordinal]) {
+		case SUBJECT:
+			return Boolean.TRUE;
+		case NO_SUBJECT:
+			return Boolean.FALSE;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the named entity type of a mention, i.e. the type of its first word with an enamex
+	 * tag. Words which aren't part of the document have no tag.
+	 * 
+	 * @param mention The mention.
+	 * @return The matching {@link NEType} or <code>null</code> if no word has an enamex tag.
+	 */
+	public NEType getNEType(Mention mention) {
+		for (Word word : mention.getWordList()) {
+			int ordinal = index.getOrdinal(word);
+
+			if (ordinal < 0) continue;
+			if (neTypes[ordinal] == 0) {
+				String tag = index.getEnamexTag(ordinal);
+				neTypes[ordinal] = tag == null ? 
+						NO_ENTITY : (byte) (NEType.getMatchingNEType(tag).ordinal() + 1);
+			}
+			if (neTypes[ordinal] != NO_ENTITY) return NE_TYPES[neTypes[ordinal] - 1];
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of personal and possessive pronouns in the sentence of a word.
+	 * 
+	 * @param ordinal Ordinal of the word (-1 = not part of the document).
+	 * @return The number of pronouns or -1 if the word isn't part of a sentence.
+	 */
+	public int getPronounCount(int ordinal) {
+		if (ordinal < 0) return -1;
+		int start = index.getSentenceStart(ordinal);
+
+		if (start < 0) return -1;
+		if (pronounCounts[start] == 0) {
+			int prpCount = 0;
+
+			for (int i = start; i <= index.getSentenceEnd(ordinal); i++) {
+				String pos = index.getPosTag(i);
+
+				if ("prp".equals(pos) || "prp$".equals(pos)) prpCount++;
+			}
+			pronounCounts[start] = prpCount + 1;
+		}
+		return pronounCounts[start] - 1;
+	}
+
+	/**
+	 * Returns the hash code of the lower-cased token of a word.
+	 * 
+	 * @param ordinal Ordinal of the word.
+	 * @return The hash code, never 0.
+	 */
+	public int getTokenHash(int ordinal) {
+		if (tokenHashes[ordinal] == 0) {
+			int hash = words.get(ordinal).getToken().toLowerCase().hashCode();
+			tokenHashes[ordinal] = hash == 0 ? 1 : hash;
+		}
+		return tokenHashes[ordinal];
+	}
+
+	/**
+	 * Returns the normalized string of a mention for the approximate string matching.
+	 * 
+	 * @param mention The mention.
+	 * @return The {@link NormalizedMention}, which is computed once per document unless the first
+	 *   word of the mention isn't part of it.
+	 */
+	public NormalizedMention getNormalizedMention(Mention mention) {
+		Long key = getKey(mention);
+
+		if (key == null) return new NormalizedMention(mention.getWordList());
+		NormalizedMention normalized = normalizedMentions.get(key);
+
+		if (normalized == null) {
+			normalized = new NormalizedMention(mention.getWordList());
+			normalizedMentions.put(key, normalized);
+		}
+		return normalized;
+	}
+
+	/**
+	 * Returns the gender and number of a mention, i.e. the entry of the whole mention in the
+	 * {@link AgreementLexicon} or, if there's none, the entry of its head (last word).
+	 * 
+	 * @param mention The mention.
+	 * @param lexicon The lexicon.
+	 * @return The code of the mention, {@link AgreementLexicon#UNKNOWN} if neither is part of the
+	 *   lexicon.
+	 */
+	public byte getAgreement(Mention mention, AgreementLexicon lexicon) {
+		Long key = getKey(mention);
+		Byte code = key == null ? null : agreements.get(key);
+
+		if (code == null) {
+			List<Word> mentionWords = mention.getWordList();
+			StringBuilder phrase = new StringBuilder();
+
+			for (Word word : mentionWords) {
+				if (phrase.length() > 0) phrase.append(' ');
+				phrase.append(word.getToken().toLowerCase());
+			}
+			code = lexicon.lookup(phrase.toString());
+
+			if (code == AgreementLexicon.UNKNOWN && mentionWords.size() > 1) {
+				code = lexicon.lookup(
+						mentionWords.get(mentionWords.size() - 1).getToken().toLowerCase());
+			}
+			if (key != null) agreements.put(key, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Returns the key of the properties of a whole mention: the ordinal of the first word (high
+	 * bits) and the number of words (low bits).
+	 * 
+	 * @param mention The mention.
+	 * @return The key or <code>null</code> if the first word isn't part of the document.
+	 */
+	private Long getKey(Mention mention) {
+		int ordinal = getOrdinal(mention);
+
+		return ordinal < 0 ? null : ((long) ordinal << 32) | mention.getWordList().size();
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction
+ * class: NormalizedMention
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction;
+
+import java.util.Arrays;
+import java.util.List;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+
+
+/**
+ * The normalized string of a mention, prepared for approximate string matching.
+ * <br>
+ * <p>The tokens are lower-cased, stripped of all characters which are neither letters nor
+ * digits and joined by single spaces; at most {@link #MAX_LENGTH} characters are kept, so every
+ * comparison takes constant time. The edit distance is computed with the bit-parallel algorithm
+ * of Myers (in the formulation of Hyyr&ouml;), which processes a character of the other string
+ * in a few word operations, using the character masks prepared here. The token set is kept as
+ * sorted hash codes for the token overlap.</p>
+ */
+public class NormalizedMention {
+	/**
+	 * Maximum number of characters of a normalized mention (the width of the bit vectors).
+	 */
+	public static final int MAX_LENGTH = 64;
+	
+	private final String text;
+	
+	/**
+	 * The distinct characters of the text (sorted) and the positions at which they occur.
+	 */
+	private final char[] alphabet;
+	private final long[] masks;
+	
+	/**
+	 * The sorted distinct hash codes of the tokens.
+	 */
+	private final int[] tokens;
+	
+	/**
+	 * Normalizes the words of a mention.
+	 * 
+	 * @param words The words of the mention.
+	 */
+	public NormalizedMention(List<Word> words) {
+		StringBuilder sb = new StringBuilder();
+		int[] hashes = new int[words.size()];
+		int count = 0;
+		
+		for (Word word : words) {
+			String token = normalize(word.getToken());
+			
+			if (token.isEmpty()) continue;
+			if (sb.length() > 0) sb.append(' ');
+			sb.append(token);
+			hashes[count++] = token.hashCode();
+		}
+		this.text = sb.length() > MAX_LENGTH ? sb.substring(0, MAX_LENGTH) : sb.toString();
+		this.tokens = distinct(Arrays.copyOf(hashes, count));
+		
+		/* the mask of a character has the bit of each position of the character set */
+		char[] chars = text.toCharArray();
+		Arrays.sort(chars);
+		int size = 0;
+		
+		for (int i = 0; i < chars.length; i++) {
+			if (i == 0 || chars[i] != chars[i - 1]) chars[size++] = chars[i];
+		}
+		this.alphabet = Arrays.copyOf(chars, size);
+		this.masks = new long[size];
+		
+		for (int i = 0; i < text.length(); i++) {
+			masks[Arrays.binarySearch(alphabet, text.charAt(i))] |= 1L << i;
+		}
+	}
+	
+	/**
+	 * Lower-cases a token and removes all characters which are neither letters nor digits.
+	 */
+	private static String normalize(String token) {
+		StringBuilder sb = new StringBuilder(token.length());
+		
+		for (int i = 0; i < token.length(); i++) {
+			char c = token.charAt(i);
+			
+			if (Character.isLetterOrDigit(c)) sb.append(Character.toLowerCase(c));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Sorts hash codes and removes duplicates.
+	 */
+	private static int[] distinct(int[] hashes) {
+		Arrays.sort(hashes);
+		int size = 0;
+		
+		for (int i = 0; i < hashes.length; i++) {
+			if (i == 0 || hashes[i] != hashes[i - 1]) hashes[size++] = hashes[i];
+		}
+		return Arrays.copyOf(hashes, size);
+	}
+	
+	/**
+	 * Getter for the normalized text.
+	 * 
+	 * @return The text, at most {@link #MAX_LENGTH} characters.
+	 */
+	public String getText() { return text; }
+	
+	/**
+	 * Checks whether the mention contains any letters or digits.
+	 * 
+	 * @return true if the normalized text is empty.
+	 */
+	public boolean isEmpty() { return text.isEmpty(); }
+	
+	/**
+	 * Returns the mask of the positions of a character in the text.
+	 */
+	private long getMask(char c) {
+		int i = Arrays.binarySearch(alphabet, c);
+		
+		return i < 0 ? 0 : masks[i];
+	}
+	
+	/**
+	 * Computes the Levenshtein distance between the texts of two mentions.
+	 * 
+	 * @param other The other mention.
+	 * @return The minimum number of insertions, deletions and substitutions.
+	 */
+	public int getEditDistance(NormalizedMention other) {
+		int m = text.length();
+		
+		if (m == 0) return other.text.length();
+		
+		/* vertical deltas of the current column: +1 (pv) and -1 (mv) */
+		long pv = m == 64 ? -1L : (1L << m) - 1;
+		long mv = 0;
+		long last = 1L << (m - 1);
+		int distance = m;
+		
+		for (int j = 0; j < other.text.length(); j++) {
+			long eq = getMask(other.text.charAt(j));
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			
+			if ((ph & last) != 0) distance++;
+			else if ((mh & last) != 0) distance--;
+			
+			/* the first row of a global alignment increases by one in each column */
+			ph = (ph << 1) | 1;
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+		}
+		return distance;
+	}
+	
+	/**
+	 * Computes the edit similarity of two mentions, i.e. one minus the edit distance normalized by
+	 * the length of the longer text.
+	 * 
+	 * @param other The other mention.
+	 * @return The similarity between 0 and 1, NaN if both texts are empty.
+	 */
+	public double getEditSimilarity(NormalizedMention other) {
+		int length = Math.max(text.length(), other.text.length());
+		
+		if (length == 0) return Double.NaN;
+		return 1 - (double) getEditDistance(other) / length;
+	}
+	
+	/**
+	 * Computes the overlap (Jaccard coefficient) of the token sets of two mentions.
+	 * 
+	 * @param other The other mention.
+	 * @return The number of common tokens divided by the number of all tokens, NaN if neither
+	 *   mention has a token.
+	 */
+	public double getTokenOverlap(NormalizedMention other) {
+		int common = 0;
+		
+		for (int i = 0, j = 0; i < tokens.length && j < other.tokens.length; ) {
+			if (tokens[i] < other.tokens[j]) i++;
+			else if (tokens[i] > other.tokens[j]) j++;
+			else { common++; i++; j++; }
+		}
+		int all = tokens.length + other.tokens.length - common;
+		
+		return all == 0 ? Double.NaN : (double) common / all;
+	}
+}
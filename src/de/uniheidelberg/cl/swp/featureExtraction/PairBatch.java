@@ -0,0 +1,110 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction
+ * class: PairBatch
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction;
+
+import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.util.MMAXParser;
+
+/**
+ * All pairs of a document whose features are extracted together, see
+ * {@link AbstractFeatureExtractor#extractBatch(PairBatch, int)}.
+ * <br>
+ * <p>The pairs are accessed by position through a single {@link PairContext}, the values are
+ * written into the feature vectors of the pairs. A batch must only be used by one thread.</p>
+ */
+public abstract class PairBatch {
+	private final PairContext context;
+
+	/**
+	 * Creates a batch for the pairs of a document.
+	 * 
+	 * @param mmax The MMAX file of the pairs.
+	 * @param mentions The cached mention properties of the MMAX file.
+	 */
+	protected PairBatch(MMAXParser mmax, MentionProperties mentions) {
+		this.context = new PairContext(mmax, mentions);
+	}
+
+	/**
+	 * Returns the number of pairs.
+	 * 
+	 * @return Number of pairs.
+	 */
+	public abstract int size();
+
+	/**
+	 * Returns the pair at a position. The object may be reused for other positions.
+	 * 
+	 * @param i Position of the pair.
+	 * @return The {@link CoreferencePair}.
+	 */
+	protected abstract CoreferencePair getPair(int i);
+
+	/**
+	 * Returns the ordinal of the first word of the anaphor of a pair, without pointing the
+	 * context to the pair.
+	 * 
+	 * @param i Position of the pair.
+	 * @return The ordinal or -1 if the word isn't part of the document.
+	 */
+	public abstract int getAnaphorOrdinal(int i);
+
+	/**
+	 * Writes a feature value of a pair.
+	 * 
+	 * @param i Position of the pair.
+	 * @param slot Slot of the feature.
+	 * @param value The value in the encoding of {@link AbstractFeatureExtractor#extractFeature}.
+	 */
+	public abstract void setValue(int i, int slot, double value);
+
+	/**
+	 * Points the context to the pair at a position.
+	 * 
+	 * @param i Position of the pair.
+	 * @return The {@link PairContext} of the pair, which is reused for the next position.
+	 */
+	public PairContext getContext(int i) {
+		context.setPair(getPair(i));
+		return context;
+	}
+
+	/**
+	 * Getter for the MMAX file of the pairs.
+	 * 
+	 * @return The MMAX file.
+	 */
+	public MMAXParser getMmax() { return context.getMmax(); }
+
+	/**
+	 * Getter for the cached mention properties of the MMAX file.
+	 * 
+	 * @return The {@link MentionProperties}.
+	 */
+	public MentionProperties getMentions() { return context.getMentions(); }
+}
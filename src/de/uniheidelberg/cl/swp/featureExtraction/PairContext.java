@@ -0,0 +1,220 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction
+ * class: PairContext
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction;
+
+import java.util.HashMap;
+import java.util.Map;
+import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.datastructure.Mention;
+import de.uniheidelberg.cl.swp.featureExtraction.features.NEType;
+import de.uniheidelberg.cl.swp.featureExtraction.features.POSTag;
+import de.uniheidelberg.cl.swp.util.DocumentIndex;
+import de.uniheidelberg.cl.swp.util.MMAXParser;
+
+/**
+ * The resolved properties of the {@link CoreferencePair} which is currently being extracted,
+ * shared by all {@link AbstractFeatureExtractor}s.
+ * <br>
+ * <p>The word ordinals and sentence IDs of the first words of both mentions are resolved once
+ * when the pair is set, the POS, deprel and NE tags are read from the {@link MentionProperties}
+ * of the document by these ordinals. A context is reused for the pairs of a document and must
+ * only be used by one thread.</p>
+ */
+public class PairContext {
+	private final MMAXParser mmax;
+	private final DocumentIndex index;
+	private final MentionProperties mentions;
+	private CoreferencePair corefPair;
+
+	/**
+	 * Ordinals of the first words (-1 = not part of the document) and their sentence IDs (-1 =
+	 * no sentence).
+	 */
+	private int antecedentOrdinal;
+	private int anaphorOrdinal;
+	private int antecedentSentence;
+	private int anaphorSentence;
+
+	/**
+	 * Values of the current pair which are shared by several extractors, see
+	 * {@link #getCached(Object)}.
+	 */
+	private final Map<Object, Object> pairCache = new HashMap<Object, Object>();
+
+	/**
+	 * Creates a context for the pairs of a document.
+	 * 
+	 * @param mmax The MMAX file of the pairs.
+	 * @param mentions The cached mention properties of the MMAX file.
+	 */
+	public PairContext(MMAXParser mmax, MentionProperties mentions) {
+		this.mmax = mmax;
+		this.index = mmax.getDocumentIndex();
+		this.mentions = mentions;
+	}
+
+	/**
+	 * Sets the pair to be extracted next and resolves its words.
+	 * 
+	 * @param corefPair The {@link CoreferencePair}.
+	 */
+	public void setPair(CoreferencePair corefPair) {
+		this.corefPair = corefPair;
+		this.antecedentOrdinal = getOrdinal(corefPair.getAntecedent());
+		this.anaphorOrdinal = getOrdinal(corefPair.getAnaphor());
+		this.antecedentSentence = getSentence(antecedentOrdinal);
+		this.anaphorSentence = getSentence(anaphorOrdinal);
+
+		if (! pairCache.isEmpty()) pairCache.clear();
+	}
+
+	private int getOrdinal(Mention mention) {
+		return mention.getWordList().isEmpty() ? -1 : mentions.getOrdinal(mention);
+	}
+
+	private int getSentence(int ordinal) {
+		return ordinal < 0 ? -1 : index.getSentence(ordinal);
+	}
+
+	/**
+	 * Getter for the pair which is currently being extracted.
+	 * 
+	 * @return The {@link CoreferencePair}.
+	 */
+	public CoreferencePair getPair() { return corefPair; }
+
+	/**
+	 * Getter for the MMAX file of the pair.
+	 * 
+	 * @return The MMAX file.
+	 */
+	public MMAXParser getMmax() { return mmax; }
+
+	/**
+	 * Getter for the cached mention properties of the MMAX file.
+	 * 
+	 * @return The {@link MentionProperties}.
+	 */
+	public MentionProperties getMentions() { return mentions; }
+
+	/**
+	 * Returns the ordinal of the first word of the antecedent.
+	 * 
+	 * @return The ordinal or -1 if the word isn't part of the document.
+	 */
+	public int getAntecedentOrdinal() { return antecedentOrdinal; }
+
+	/**
+	 * Returns the ordinal of the first word of the anaphor.
+	 * 
+	 * @return The ordinal or -1 if the word isn't part of the document.
+	 */
+	public int getAnaphorOrdinal() { return anaphorOrdinal; }
+
+	/**
+	 * Returns the sentence ID of the first word of the antecedent.
+	 * 
+	 * @return The sentence ID or -1 if the word isn't part of a sentence.
+	 */
+	public int getAntecedentSentence() { return antecedentSentence; }
+
+	/**
+	 * Returns the sentence ID of the first word of the anaphor.
+	 * 
+	 * @return The sentence ID or -1 if the word isn't part of a sentence.
+	 */
+	public int getAnaphorSentence() { return anaphorSentence; }
+
+	/**
+	 * Returns the POS tag of the first word of the antecedent.
+	 * 
+	 * @return The matching {@link POSTag} or <code>null</code> if the word has no POS tag.
+	 */
+	public POSTag getAntecedentPosTag() { return mentions.getPosTag(antecedentOrdinal); }
+
+	/**
+	 * Returns the POS tag of the first word of the anaphor.
+	 * 
+	 * @return The matching {@link POSTag} or <code>null</code> if the word has no POS tag.
+	 */
+	public POSTag getAnaphorPosTag() { return mentions.getPosTag(anaphorOrdinal); }
+
+	/**
+	 * Returns whether the first word of the antecedent is a subject.
+	 * 
+	 * @return The subject flag or <code>null</code> if the word has no dependency relation.
+	 */
+	public Boolean isAntecedentSubject() { return mentions.isSubject(antecedentOrdinal); }
+
+	/**
+	 * Returns whether the first word of the anaphor is a subject.
+	 * 
+	 * @return The subject flag or <code>null</code> if the word has no dependency relation.
+	 */
+	public Boolean isAnaphorSubject() { return mentions.isSubject(anaphorOrdinal); }
+
+	/**
+	 * Returns the named entity type of the pair, i.e. the type of the antecedent or, if it isn't
+	 * a named entity, of the anaphor.
+	 * 
+	 * @return The matching {@link NEType} or <code>null</code> if neither is a named entity.
+	 */
+	public NEType getNEType() {
+		NEType type = mentions.getNEType(corefPair.getAntecedent());
+
+		return type != null ? type : mentions.getNEType(corefPair.getAnaphor());
+	}
+
+	/**
+	 * Returns a value of the current pair which has been computed by another extractor, e.g. a
+	 * table several extractors read one entry of. The values are discarded when the next pair is
+	 * set.
+	 * 
+	 * @param key The key of the value.
+	 * @return The value or <code>null</code> if it hasn't been computed for this pair.
+	 */
+	public Object getCached(Object key) { return pairCache.get(key); }
+
+	/**
+	 * Stores a value of the current pair for the other extractors, see
+	 * {@link #getCached(Object)}.
+	 * 
+	 * @param key The key of the value.
+	 * @param value The value.
+	 */
+	public void setCached(Object key, Object value) { pairCache.put(key, value); }
+
+	/**
+	 * Returns the number of personal and possessive pronouns in the sentence of the anaphor.
+	 * 
+	 * @return The number of pronouns or -1 if the anaphor isn't part of a sentence.
+	 */
+	public int getAnaphorPronounCount() {
+		return anaphorSentence < 0 ? -1 : mentions.getPronounCount(anaphorOrdinal);
+	}
+}
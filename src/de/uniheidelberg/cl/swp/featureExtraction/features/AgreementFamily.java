@@ -0,0 +1,58 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction.features
+ * class: AgreementFamily
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.featureExtraction.ExtractorFamily;
+import de.uniheidelberg.cl.swp.util.AgreementLexicon;
+
+
+/**
+ * The gender and number agreement features: an {@link FE_agreement} extractor for each
+ * {@link FE_agreement.Property}.
+ * <br>
+ * The features are only extracted if an {@link AgreementLexicon} is configured by the config
+ * entry "AgreementLexicon"; a configured lexicon which can't be opened is an error.
+ */
+public class AgreementFamily implements ExtractorFamily {
+
+	@Override
+	public List<AbstractFeatureExtractor> getMembers() {
+		AgreementLexicon lexicon = AgreementLexicon.getInstance();
+		List<AbstractFeatureExtractor> members = new ArrayList<AbstractFeatureExtractor>();
+		
+		if (lexicon == null) return members;
+		
+		for (FE_agreement.Property property : FE_agreement.Property.values()) {
+			members.add(new FE_agreement(property, lexicon));
+		}
+		return members;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction.features
+ * class: FE_agreement
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import weka.core.Attribute;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.featureExtraction.MentionProperties;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
+import de.uniheidelberg.cl.swp.util.AgreementLexicon;
+
+
+/**
+ * This feature extractor checks whether the antecedent and the anaphor of a coreference pair
+ * agree in gender or number (see {@link Property}).
+ * <br>
+ * The gender and number of the mentions are looked up in the memory-mapped
+ * {@link AgreementLexicon} once per mention and document. If one of the mentions isn't part of
+ * the lexicon, the feature is missing. The extractors of both properties are created by the
+ * {@link AgreementFamily}.
+ */
+public class FE_agreement extends AbstractFeatureExtractor {
+	/**
+	 * The compared property of the mentions.
+	 */
+	public enum Property {
+		/**
+		 * The {@link AgreementLexicon.Gender}.
+		 */
+		GENDER ("genderAgreement"),
+		
+		/**
+		 * The {@link AgreementLexicon.GrammaticalNumber}.
+		 */
+		NUMBER ("numberAgreement");
+		
+		private final String name;
+		
+		private Property(String name) { this.name = name; }
+	}
+	
+	private final Property property;
+	private final AgreementLexicon lexicon;
+	
+	/**
+	 * Initializes the Feature Extractor of a property and sets its name.
+	 * 
+	 * @param property The compared property.
+	 * @param lexicon The lexicon of the mentions.
+	 */
+	public FE_agreement(Property property, AgreementLexicon lexicon) {
+		this.name = property.name;
+		this.property = property;
+		this.lexicon = lexicon;
+	}
+	
+	/**
+	 * The values depend on the lexicon file.
+	 */
+	@Override
+	public String getParameters() { return lexicon.getFingerprint(); }
+	
+	@Override
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		MentionProperties mentions = context.getMentions();
+		byte antecedent = mentions.getAgreement(context.getPair().getAntecedent(), lexicon);
+		byte anaphor = mentions.getAgreement(context.getPair().getAnaphor(), lexicon);
+		Object value1;
+		Object value2;
+		
+		if (property == Property.GENDER) {
+			value1 = AgreementLexicon.getGender(antecedent);
+			value2 = AgreementLexicon.getGender(anaphor);
+		} else {
+			value1 = AgreementLexicon.getNumber(antecedent);
+			value2 = AgreementLexicon.getNumber(anaphor);
+		}
+		vector[slot] = (value1 == null || value2 == null) ? MISSING : encode(value1 == value2);
+	}
+	
+	@Override
+	public FeatureType getFeatureType() { return FeatureType.BOOLEAN; }
+	
+	@Override
+	public Attribute getWekaAttribute() {
+		List<String> boolVector = new ArrayList<String>();
+		boolVector.add("true");
+		boolVector.add("false");
+		return new Attribute(this.name, boolVector);
+	}
+}
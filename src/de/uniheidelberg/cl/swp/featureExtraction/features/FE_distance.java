@@ -28,10 +28,8 @@
 package de.uniheidelberg.cl.swp.featureExtraction.features;
 
 import weka.core.Attribute;
-import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
-import de.uniheidelberg.cl.swp.datastructure.Feature;
 import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
-import de.uniheidelberg.cl.swp.util.MMAXParser;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
 
 
 /**
@@ -47,20 +45,17 @@ public class FE_distance extends AbstractFeatureExtractor {
 	public FE_distance() { this.name = "distance"; }
 	
 	@Override
-	public void extractFeatures(CoreferencePair corefPair, MMAXParser mmax) {
-		String antec = corefPair.getAnaphor().getWordList().get(0).getXmlId();
-		String anaph = corefPair.getAntecedent().getWordList().get(0).getXmlId();
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		int antecPos = context.getAnaphorOrdinal();
+		int anaphPos = context.getAntecedentOrdinal();
 		
-		int antecPos = Integer.parseInt(antec.split("_")[1]);
-		int anaphPos = Integer.parseInt(anaph.split("_")[1]);
-		
-		Feature<Integer> feature = new Feature<Integer>("distance");
-		feature.setFtype(FeatureType.NUMERIC);
-		int distance = Math.abs(anaphPos - antecPos);
-		feature.setValue(distance);
-		addFeatureToCoref(feature, corefPair);
+		/* words created by an ACR-System may be unknown to the document */
+		vector[slot] = (antecPos < 0 || anaphPos < 0) ? MISSING : Math.abs(anaphPos - antecPos);
 	}
 	
+	@Override
+	public FeatureType getFeatureType() { return FeatureType.NUMERIC; }
+	
 	@Override
 	public Attribute getWekaAttribute() { return new Attribute(this.name);	}
 }
\ No newline at end of file
@@ -29,14 +29,9 @@ package de.uniheidelberg.cl.swp.featureExtraction.features;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Level;
-import org.eml.MMAX2.annotation.markables.MarkableLevel;
 import weka.core.Attribute;
-import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
-import de.uniheidelberg.cl.swp.datastructure.Feature;
 import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
-import de.uniheidelberg.cl.swp.io.Logging;
-import de.uniheidelberg.cl.swp.util.MMAXParser;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
 
 
 /**
@@ -44,6 +39,7 @@ import de.uniheidelberg.cl.swp.util.MMAXParser;
  *
  */
 public class FE_isSubj extends AbstractFeatureExtractor {
+	private static final String[] LEVELS = {"deprel"};
 
 	/**
 	 * Initializes the Feature Extractor and sets its name.
@@ -51,28 +47,29 @@ public class FE_isSubj extends AbstractFeatureExtractor {
 	public FE_isSubj() { this.name = "isSubj";	}
 	
 	@Override
-	public void extractFeatures(CoreferencePair corefPair, MMAXParser mmax) {
-		String id1 = corefPair.getAnaphor().getWordList().get(0).getXmlId();
-		String id2 = corefPair.getAntecedent().getWordList().get(0).getXmlId();
-		MarkableLevel depRel = mmax.getDiscourse().getMarkableLevelByName("deprel", false);
-		
-		Feature<Boolean> feature = new Feature<Boolean>(this.name);
+	public String[] getRequiredLevels() { return LEVELS; }
+	
+	/**
+	 * Version 2: words without a dependency relation are missing instead of 'false'.
+	 * Version 3: 'true' if one word is a subject, even if the other has no dependency relation.
+	 */
+	@Override
+	public int getVersion() { return 3; }
+	
+	@Override
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		Boolean subj1 = context.isAnaphorSubject();
+		Boolean subj2 = context.isAntecedentSubject();
 		
-		try {
-			String pos1 =
-				depRel.getAllMarkablesAtDiscourseElement(id1, true)[0].getAttributeValue("tag");
-			String pos2 =
-				depRel.getAllMarkablesAtDiscourseElement(id2, true)[0].getAttributeValue("tag");
-			feature.setValue(pos1.equals("sbj") || pos2.equals("sbj"));
-		} catch (Exception e) {
-			Logging.getInstance().getLogger().log(
-					Level.SEVERE, "Couldn't load feature (missing markable level?) " + this.name +
-					" I'll take 'false' as default value");
-			feature.setValue(false);
+		if (Boolean.TRUE.equals(subj1) || Boolean.TRUE.equals(subj2)) {
+			vector[slot] = encode(true);
 		}
-		feature.setFtype(FeatureType.BOOLEAN);		
-		addFeatureToCoref(feature, corefPair);
+		/* a word without a dependency relation might still be a subject */
+		else vector[slot] = (subj1 != null && subj2 != null) ? encode(false) : MISSING;
 	}
+	
+	@Override
+	public FeatureType getFeatureType() { return FeatureType.BOOLEAN; }
 
 	@Override
 	public Attribute getWekaAttribute() {
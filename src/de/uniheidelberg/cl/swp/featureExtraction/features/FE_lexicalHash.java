@@ -0,0 +1,205 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction.features
+ * class: FE_lexicalHash
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction.features;
+
+import java.util.List;
+import weka.core.Attribute;
+import de.uniheidelberg.cl.swp.datastructure.Mention;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.featureExtraction.MentionProperties;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
+
+
+/**
+ * This feature extractor extracts one bucket of a hashed lexical feature: the number of tokens
+ * of a part of the coreference pair (see {@link Source}) whose lower-cased form hashes into the
+ * bucket.
+ * <br>
+ * The tokens are mapped to a fixed number of numeric attributes instead of a nominal attribute
+ * with a value for each word, so the attribute structure doesn't grow with the vocabulary. The
+ * extractors of all buckets are created by the {@link LexicalHashFamily}.
+ */
+public class FE_lexicalHash extends AbstractFeatureExtractor {
+	/**
+	 * Maximum number of words between the mentions which are hashed.
+	 */
+	public static final int MAX_BETWEEN = 10;
+	
+	/**
+	 * The lexical material of a pair which is hashed.
+	 */
+	public enum Source {
+		/**
+		 * The head token (last word) of the anaphor.
+		 */
+		ANAPHOR_HEAD ("anaphorHead"),
+		
+		/**
+		 * The head token (last word) of the antecedent.
+		 */
+		ANTECEDENT_HEAD ("antecedentHead"),
+		
+		/**
+		 * The words between the mentions, i.e. after the last word of the first mention and
+		 * before the first word of the second one, at most {@link FE_lexicalHash#MAX_BETWEEN}.
+		 */
+		BETWEEN ("between");
+		
+		private final String prefix;
+		
+		private Source(String prefix) { this.prefix = prefix; }
+	}
+	
+	/**
+	 * Histogram of the pairs whose lexical material isn't part of the document.
+	 */
+	private static final int[] NO_HISTOGRAM = new int[0];
+	
+	private final Source source;
+	private final int bucket;
+	private final int buckets;
+	
+	/**
+	 * Initializes the Feature Extractor of a bucket and sets its name (e.g. "anaphorHeadHash3").
+	 * 
+	 * @param source The hashed lexical material.
+	 * @param bucket The bucket of this extractor.
+	 * @param buckets The number of buckets.
+	 */
+	public FE_lexicalHash(Source source, int bucket, int buckets) {
+		this.name = source.prefix + "Hash" + bucket;
+		this.source = source;
+		this.bucket = bucket;
+		this.buckets = buckets;
+	}
+	
+	/**
+	 * Version 2: the words between the mentions start after the last word of the first mention.
+	 */
+	@Override
+	public int getVersion() { return 2; }
+	
+	/**
+	 * The bucket of a token depends on the configured number of buckets.
+	 */
+	@Override
+	public String getParameters() { return Integer.toString(buckets); }
+	
+	@Override
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		/* the extractors of all buckets of a source read the same histogram of the pair */
+		int[] histogram = (int[]) context.getCached(source);
+		
+		if (histogram == null) {
+			histogram = getHistogram(context);
+			context.setCached(source, histogram);
+		}
+		vector[slot] = histogram == NO_HISTOGRAM ? MISSING : histogram[bucket];
+	}
+	
+	/**
+	 * Counts the tokens of the hashed lexical material of a pair per bucket.
+	 * 
+	 * @return The number of tokens per bucket, {@link #NO_HISTOGRAM} if the words of the pair
+	 * 		   aren't part of the document.
+	 */
+	private int[] getHistogram(PairContext context) {
+		Mention antecedent = context.getPair().getAntecedent();
+		Mention anaphor = context.getPair().getAnaphor();
+		
+		switch (source) {
+		case ANAPHOR_HEAD:
+			return getHeadHistogram(context, anaphor);
+		case ANTECEDENT_HEAD:
+			return getHeadHistogram(context, antecedent);
+		default:
+			if (context.getAntecedentOrdinal() < 0 || context.getAnaphorOrdinal() < 0) {
+				return NO_HISTOGRAM;
+			}
+			/* from the last word of the first mention to the first word of the second one */
+			boolean antecedentFirst = context.getAntecedentOrdinal() <= context.getAnaphorOrdinal();
+			int first = getLastOrdinal(context, antecedentFirst ? antecedent : anaphor);
+			int last = antecedentFirst ? 
+					context.getAnaphorOrdinal() : context.getAntecedentOrdinal();
+			
+			if (first < 0) return NO_HISTOGRAM;
+			MentionProperties mentions = context.getMentions();
+			int[] histogram = new int[buckets];
+			
+			for (int i = first + 1; i < last && i <= first + MAX_BETWEEN; i++) {
+				histogram[getBucket(mentions.getTokenHash(i))]++;
+			}
+			return histogram;
+		}
+	}
+	
+	/**
+	 * Puts the head token of a mention into its bucket.
+	 * 
+	 * @return The histogram or {@link #NO_HISTOGRAM} if the mention has no words or its head
+	 * 		   isn't part of the document.
+	 */
+	private int[] getHeadHistogram(PairContext context, Mention mention) {
+		int ordinal = getLastOrdinal(context, mention);
+		
+		if (ordinal < 0) return NO_HISTOGRAM;
+		int[] histogram = new int[buckets];
+		
+		histogram[getBucket(context.getMentions().getTokenHash(ordinal))] = 1;
+		return histogram;
+	}
+	
+	/**
+	 * Returns the ordinal of the last word of a mention.
+	 * 
+	 * @return The ordinal or -1 if the mention has no words or the word isn't part of the
+	 * 		   document.
+	 */
+	private int getLastOrdinal(PairContext context, Mention mention) {
+		List<Word> words = mention.getWordList();
+		
+		if (words.isEmpty()) return -1;
+		return context.getMmax().getDocumentIndex().getOrdinal(words.get(words.size() - 1));
+	}
+	
+	/**
+	 * Maps a hash code to a bucket.
+	 */
+	private int getBucket(int hash) {
+		/* mix the high bits into the low ones, the buckets are taken modulo a small number */
+		hash ^= hash >>> 16;
+		return ((hash % buckets) + buckets) % buckets;
+	}
+	
+	@Override
+	public FeatureType getFeatureType() { return FeatureType.NUMERIC; }
+	
+	@Override
+	public Attribute getWekaAttribute() { return new Attribute(this.name); }
+}
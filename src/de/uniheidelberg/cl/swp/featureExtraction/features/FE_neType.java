@@ -30,15 +30,9 @@ package de.uniheidelberg.cl.swp.featureExtraction.features;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eml.MMAX2.annotation.markables.Markable;
-import org.eml.MMAX2.annotation.markables.MarkableLevel;
-
 import weka.core.Attribute;
-import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
-import de.uniheidelberg.cl.swp.datastructure.Feature;
-import de.uniheidelberg.cl.swp.datastructure.Word;
 import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
-import de.uniheidelberg.cl.swp.util.MMAXParser;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
 
 
 /**
@@ -47,51 +41,44 @@ import de.uniheidelberg.cl.swp.util.MMAXParser;
  *
  */
 public class FE_neType extends AbstractFeatureExtractor{
+	private static final String[] LEVELS = {"enamex"};
 	
 	/**
 	 * Initializes the Feature Extractor and sets its name.
 	 */
 	public FE_neType() { this.name = "neType";	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
-	public void extractFeatures(CoreferencePair corefPair, MMAXParser mmax) {
-		/* see whether this corefPair denotes an entity. */
-		MarkableLevel enamex = mmax.getDiscourse().getMarkableLevelByName("enamex", false);
-		String enamexTag = "none";
-		Feature<NEType> feature = new Feature<NEType>(this.getName());
-		feature.setFtype(FeatureType.NETYPE);
-
-		/* Try to find the NEType for the antecedent. */
-		for (Word word : corefPair.getAntecedent().getWordList()) {
-			String id = word.getXmlId();
-			List<Markable> crpMarkables = enamex.getMarkablesAtDiscourseElementID(id, null);
-			
-			if (crpMarkables.size() == 0) {	continue; }
-			else {
-				enamexTag = crpMarkables.get(0).getAttributeValue("tag");
-				feature.setValue(NEType.getMatchingNEType(enamexTag));
-				addFeatureToCoref(feature, corefPair);
-				return;
-			}
+	public String[] getRequiredLevels() { return LEVELS; }
+	
+	/**
+	 * Version 2: documents without an enamex level are missing instead of 'none'.
+	 * Version 4: pairs without a named entity are 'none' again, only a missing enamex level is 
+	 * missing.
+	 * Version 5: documents with an enamex level but without named entities are 'none' instead of
+	 * missing.
+	 */
+	@Override
+	public int getVersion() { return 5; }
+	
+	@Override
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		if (context.getAntecedentOrdinal() < 0 || context.getAnaphorOrdinal() < 0) {
+			vector[slot] = MISSING;
+			return;
 		}
 		
-		/* Try to find the NEType for the anaphora. */
-		for (Word word : corefPair.getAnaphor().getWordList()) {
-			String id = word.getXmlId();
-			List<Markable> crpMarkables =  enamex.getMarkablesAtDiscourseElementID(id, null);
-			
-			if (crpMarkables.size() == 0) {	continue; }
-			else {
-				enamexTag = crpMarkables.get(0).getAttributeValue("tag");
-				feature.setValue(NEType.getMatchingNEType(enamexTag));
-				addFeatureToCoref(feature, corefPair);
-				return;
-			}
-		}		
-		feature.setValue(NEType.getMatchingNEType(enamexTag));
-		addFeatureToCoref(feature, corefPair);	
+		/* Try to find the NEType for the antecedent, then for the anaphora. */
+		NEType type = context.getNEType();
+		
+		/* neither mention is a named entity */
+		if (type == null) type = NEType.NONE;
+		
+		vector[slot] = type.ordinal();
 	}
+	
+	@Override
+	public FeatureType getFeatureType() { return FeatureType.NETYPE; }
 
 	@Override
 	public Attribute getWekaAttribute() {
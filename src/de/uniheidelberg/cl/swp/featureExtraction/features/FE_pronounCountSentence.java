@@ -27,13 +27,11 @@
  */
 package de.uniheidelberg.cl.swp.featureExtraction.features;
 
-import org.eml.MMAX2.annotation.markables.Markable;
-import org.eml.MMAX2.annotation.markables.MarkableLevel;
 import weka.core.Attribute;
-import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
-import de.uniheidelberg.cl.swp.datastructure.Feature;
 import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
-import de.uniheidelberg.cl.swp.util.MMAXParser;
+import de.uniheidelberg.cl.swp.featureExtraction.MentionProperties;
+import de.uniheidelberg.cl.swp.featureExtraction.PairBatch;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
 
 
 /**
@@ -43,6 +41,7 @@ import de.uniheidelberg.cl.swp.util.MMAXParser;
  *
  */
 public class FE_pronounCountSentence extends AbstractFeatureExtractor {
+	private static final String[] LEVELS = {"sentence", "pos"};
 
 	/**
 	 * Initializes the Feature Extractor and sets its name. 
@@ -50,37 +49,43 @@ public class FE_pronounCountSentence extends AbstractFeatureExtractor {
 	public FE_pronounCountSentence() { this.name = "pronounCountSentence"; }
 	
 	@Override
-	public void extractFeatures(CoreferencePair corefPair, MMAXParser mmax) {
-		int prpCount = 0;
-		
-		String id = corefPair.getAnaphor().getWordList().get(0).getXmlId();
-		
-		/* Acquire the sentence attribute for the current discourse entity and its word's IDs. */
-		MarkableLevel sentenceLevel =
-			mmax.getDiscourse().getMarkableLevelByName("sentence", false);		
-		Markable sentenceMarkable =
-			(Markable) sentenceLevel.getMarkablesAtDiscourseElementID(id, null).get(0);
-		
-		String[] sentenceSpan = sentenceMarkable.getDiscourseElementIDs();
+	public String[] getRequiredLevels() { return LEVELS; }
+	
+	/**
+	 * Version 2: documents without a pos level are missing instead of 0.
+	 */
+	@Override
+	public int getVersion() { return 2; }
+	
+	@Override
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		/* The pronouns of the sentence containing the current discourse entity, which are
+		 * counted once per sentence and document by the MentionProperties. */
+		int prpCount = context.getAnaphorPronounCount();
 		
-		/* check extracted word numbers' POS tags, increment counter if pronoun. */
-		MarkableLevel posLevel = mmax.getDiscourse().getMarkableLevelByName("pos", false);
+		vector[slot] = prpCount < 0 ? MISSING : prpCount;
+	}
+	
+	/**
+	 * The count only depends on the sentence of the anaphor, so all pairs of a document are
+	 * looked up by the ordinal of the anaphor, without a {@link PairContext} for each pair. The
+	 * pronouns of each sentence are counted once.
+	 */
+	@Override
+	public boolean extractBatch(PairBatch batch, int slot) {
+		MentionProperties mentions = batch.getMentions();
 		
-		for (String word : sentenceSpan){
-			Markable posMarkable =
-				(Markable) posLevel.getMarkablesAtDiscourseElementID(word, null).get(0);
-			String pos = posMarkable.getAttributeValue("tag");
-			if (pos.equals("prp")){	prpCount += 1; }
-			else if (pos.equals("prp$")){ prpCount += 1; }
-			else{ continue;	}
+		for (int i = 0; i < batch.size(); i++) {
+			int prpCount = mentions.getPronounCount(batch.getAnaphorOrdinal(i));
+			
+			batch.setValue(i, slot, prpCount < 0 ? MISSING : prpCount);
 		}
-		
-		Feature<Integer> feature = new Feature<Integer>(this.name);
-		feature.setFtype(FeatureType.NUMERIC);
-		feature.setValue(prpCount);
-		addFeatureToCoref(feature, corefPair); 		
+		return true;
 	}
 	
+	@Override
+	public FeatureType getFeatureType() { return FeatureType.NUMERIC; }
+	
 	@Override
 	public Attribute getWekaAttribute() {
 		Attribute pronCount = new Attribute(this.name);
@@ -32,9 +32,8 @@ import java.util.ArrayList;
 import java.util.List;
 import weka.core.Attribute;
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
-import de.uniheidelberg.cl.swp.datastructure.Feature;
 import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
-import de.uniheidelberg.cl.swp.util.MMAXParser;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
 
 /**
  * This Feature Extractor checks whether anaphora & antecedent match in their string representation.
@@ -48,16 +47,16 @@ public class FE_stringMatch extends AbstractFeatureExtractor {
 	public FE_stringMatch() { this.name = "stringMatch"; }
 
 	@Override
-	public void extractFeatures(CoreferencePair corefPair, MMAXParser mmax) {
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		CoreferencePair corefPair = context.getPair();
 		String word1 = corefPair.getAnaphor().getWordList().get(0).getToken();
 		String word2 = corefPair.getAntecedent().getWordList().get(0).getToken();
 		
-		Feature<Boolean> feature = new Feature<Boolean>(this.name);
-		feature.setValue(word1.equals(word2));
-		feature.setFtype(FeatureType.BOOLEAN);
-		
-		addFeatureToCoref(feature, corefPair);
-	}	
+		vector[slot] = encode(word1.equals(word2));
+	}
+	
+	@Override
+	public FeatureType getFeatureType() { return FeatureType.BOOLEAN; }	
 
 	@Override
 	public Attribute getWekaAttribute() {
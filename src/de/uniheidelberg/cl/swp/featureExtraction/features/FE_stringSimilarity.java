@@ -0,0 +1,138 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction.features
+ * class: FE_stringSimilarity
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import weka.core.Attribute;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.featureExtraction.MentionProperties;
+import de.uniheidelberg.cl.swp.featureExtraction.NormalizedMention;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
+
+
+/**
+ * This feature extractor compares the whole strings of the mentions of a coreference pair
+ * approximately (see {@link Measure}).
+ * <br>
+ * Unlike {@link FE_stringMatch}, which only checks the first tokens for equality, it grades
+ * partial matches: "the Clinton administration" and "Clinton" share a third of their tokens. The
+ * approximate match only holds for close strings, e.g. for spelling variants like "Gorbachev" and
+ * "Gorbatchev" (edit similarity 0.9) at the default threshold of 0.8. The mentions are normalized once per document by the {@link MentionProperties}; the
+ * comparison of two mentions takes constant time. The extractors of all measures are created by
+ * the {@link StringSimilarityFamily}.
+ */
+public class FE_stringSimilarity extends AbstractFeatureExtractor {
+	/**
+	 * The compared property of the normalized mention strings.
+	 */
+	public enum Measure {
+		/**
+		 * One minus the edit distance normalized by the length of the longer string.
+		 */
+		EDIT ("editSimilarity"),
+		
+		/**
+		 * The overlap (Jaccard coefficient) of the token sets.
+		 */
+		TOKEN_OVERLAP ("tokenOverlap"),
+		
+		/**
+		 * Whether the edit similarity or the token overlap reaches the threshold.
+		 */
+		MATCH ("approxMatch");
+		
+		private final String name;
+		
+		private Measure(String name) { this.name = name; }
+	}
+	
+	private final Measure measure;
+	private final double threshold;
+	
+	/**
+	 * Initializes the Feature Extractor of a measure and sets its name.
+	 * 
+	 * @param measure The compared property.
+	 * @param threshold The minimum similarity of an approximate match (only used by
+	 *   {@link Measure#MATCH}).
+	 */
+	public FE_stringSimilarity(Measure measure, double threshold) {
+		this.name = measure.name;
+		this.measure = measure;
+		this.threshold = threshold;
+	}
+	
+	/**
+	 * The approximate match depends on the configured threshold.
+	 */
+	@Override
+	public String getParameters() { 
+		return measure == Measure.MATCH ? Double.toString(threshold) : null;
+	}
+	
+	@Override
+	public void extractFeature(PairContext context, double[] vector, int slot) {
+		MentionProperties mentions = context.getMentions();
+		NormalizedMention antecedent = mentions.getNormalizedMention(
+				context.getPair().getAntecedent());
+		NormalizedMention anaphor = mentions.getNormalizedMention(context.getPair().getAnaphor());
+		
+		/* punctuation or symbols only */
+		if (antecedent.isEmpty() || anaphor.isEmpty()) {
+			vector[slot] = MISSING;
+			return;
+		}
+		
+		switch (measure) {
+		case EDIT:
+			vector[slot] = antecedent.getEditSimilarity(anaphor);
+			break;
+		case TOKEN_OVERLAP:
+			vector[slot] = antecedent.getTokenOverlap(anaphor);
+			break;
+		default:
+			vector[slot] = encode(antecedent.getTokenOverlap(anaphor) >= threshold 
+					|| antecedent.getEditSimilarity(anaphor) >= threshold);
+		}
+	}
+	
+	@Override
+	public FeatureType getFeatureType() { 
+		return measure == Measure.MATCH ? FeatureType.BOOLEAN : FeatureType.NUMERIC;
+	}
+	
+	@Override
+	public Attribute getWekaAttribute() {
+		if (measure != Measure.MATCH) return new Attribute(this.name);
+		List<String> boolVector = new ArrayList<String>();
+		boolVector.add("true");
+		boolVector.add("false");
+		return new Attribute(this.name, boolVector);
+	}
+}
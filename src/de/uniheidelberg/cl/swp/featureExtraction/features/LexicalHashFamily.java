@@ -0,0 +1,60 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction.features
+ * class: LexicalHashFamily
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.featureExtraction.ExtractorFamily;
+import de.uniheidelberg.cl.swp.io.Configuration;
+
+
+/**
+ * The hashed lexical features: an {@link FE_lexicalHash} extractor for each bucket of each
+ * {@link FE_lexicalHash.Source}.
+ * <br>
+ * The number of buckets per source is taken from the config entry "LexicalHashBuckets" (0 = no
+ * lexical features), so the number of attributes is bounded regardless of the vocabulary.
+ */
+public class LexicalHashFamily implements ExtractorFamily {
+
+	@Override
+	public List<AbstractFeatureExtractor> getMembers() {
+		String value = Configuration.getInstance().getProperties().getProperty(
+				"LexicalHashBuckets", "0");
+		int buckets = Integer.parseInt(value.trim());
+		List<AbstractFeatureExtractor> members = new ArrayList<AbstractFeatureExtractor>();
+		
+		for (FE_lexicalHash.Source source : FE_lexicalHash.Source.values()) {
+			for (int bucket = 0; bucket < buckets; bucket++) {
+				members.add(new FE_lexicalHash(source, bucket, buckets));
+			}
+		}
+		return members;
+	}
+}
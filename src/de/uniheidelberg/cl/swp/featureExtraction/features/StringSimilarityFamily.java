@@ -0,0 +1,58 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.featureExtraction.features
+ * class: StringSimilarityFamily
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.featureExtraction.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.featureExtraction.ExtractorFamily;
+import de.uniheidelberg.cl.swp.io.Configuration;
+
+
+/**
+ * The approximate string matching features: an {@link FE_stringSimilarity} extractor for each
+ * {@link FE_stringSimilarity.Measure}.
+ * <br>
+ * The minimum similarity of an approximate match is taken from the config entry
+ * "ApproxMatchThreshold".
+ */
+public class StringSimilarityFamily implements ExtractorFamily {
+
+	@Override
+	public List<AbstractFeatureExtractor> getMembers() {
+		String value = Configuration.getInstance().getProperties().getProperty(
+				"ApproxMatchThreshold", "0.8");
+		double threshold = Double.parseDouble(value.trim());
+		List<AbstractFeatureExtractor> members = new ArrayList<AbstractFeatureExtractor>();
+		
+		for (FE_stringSimilarity.Measure measure : FE_stringSimilarity.Measure.values()) {
+			members.add(new FE_stringSimilarity(measure, threshold));
+		}
+		return members;
+	}
+}
@@ -40,6 +40,7 @@ import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
 import de.uniheidelberg.cl.swp.datastructure.Feature;
 import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
 import de.uniheidelberg.cl.swp.featureExtraction.FeatureExtractionProcess;
+import de.uniheidelberg.cl.swp.testacr.ChainEvaluation;
 import de.uniheidelberg.cl.swp.testacr.Evaluation;
 
 
@@ -212,8 +213,26 @@ public class ACRResultWriter {
 				crp.getAnaphor().getWordList().get(0).getXmlId() + ")\n");
 	}
 	
+	/**
+	 * Writes the share of the pairs which have been labeled by the first stage of the classifier
+	 * cascade. Has to be written before the overall result, which closes the output file.
+	 * 
+	 * @param decided Number of pairs labeled by the first stage.
+	 * @param classified Number of classified pairs.
+	 * @throws If the cascade result couldn't be written.
+	 */
+	public void writeCascadeResult(int decided, int classified) throws IOException {
+		outputFile.write("\n\n\n$$$$$$$$$$$$$$$$ CLASSIFIER CASCADE $$$$$$$$$$$$$$$$\n\n");
+		outputFile.write("Classified pairs: " + classified + "\n");
+		outputFile.write("Labeled by the first stage: " + decided + " (" + 
+				(classified == 0 ? 0 : 100.0 * decided / classified) + "%)\n");
+	}
+	
 	/**
 	 * Writes the overall performance result.
+	 * <br>
+	 * The pair-based results are followed by the chain-level MUC, B&sup3; and CEAF-e scores, if
+	 * chains have been evaluated.
 	 * 
 	 * @param eval An {@link Evaluation} object which contains the performance data.
 	 * @throws If the overall result couldn't be written.
@@ -237,6 +256,22 @@ public class ACRResultWriter {
 		outputFile.write("#Recall: " + recall + "\n");
 		outputFile.write("#F-Score: " + fscore + "\n");
 		outputFile.write("###\n");
+		
+		ChainEvaluation chainEval = eval.getChainEvaluation();
+		
+		if (chainEval.getDocumentCount() > 0) {
+			outputFile.write("\n$$$$$$$$$$$$$$$$ CHAIN-LEVEL RESULTS $$$$$$$$$$$$$$$$\n\n");
+			
+			for (ChainEvaluation.Metric metric : ChainEvaluation.Metric.values()) {
+				outputFile.write("###\n");
+				outputFile.write("#" + metric + " Precision: " + chainEval.getPrecision(metric) +
+						"\n");
+				outputFile.write("#" + metric + " Recall: " + chainEval.getRecall(metric) + "\n");
+				outputFile.write("#" + metric + " F-Score: " + chainEval.getFScore(metric) +
+						"\n");
+			}
+			outputFile.write("###\n");
+		}
 
 		outputFile.close();
 	}
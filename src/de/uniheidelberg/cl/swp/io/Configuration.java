@@ -77,7 +77,7 @@ public class Configuration {
 	 * @param configFileName Path to the config file.
 	 * @return Instance of {@link Configuration}.
 	 */
-	public static Configuration getInstance(String configFileName) {
+	public static synchronized Configuration getInstance(String configFileName) {
 		if (instance == null) {
 			instance = new Configuration(configFileName);
 		}
@@ -189,4 +189,38 @@ public class Configuration {
 		
 		return Arrays.asList(userValues);	
 	}
+	
+	/**
+	 * Returns the number of threads specified by a config entry.
+	 * <br>
+	 * Missing, invalid or non-positive values fall back to the number of available processors.
+	 * 
+	 * @param key Name of the config entry.
+	 * @return Number of threads.
+	 */
+	public int getThreadCount(String key) {
+		return getThreadCount(key, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Returns the number of threads specified by a config entry.
+	 * 
+	 * @param key Name of the config entry.
+	 * @param defaultThreads Returned for missing, invalid or non-positive values.
+	 * @return Number of threads.
+	 */
+	public int getThreadCount(String key, int defaultThreads) {
+		String value = properties.getProperty(key);
+		int threads = 0;
+		
+		if (value != null) {
+			try {
+				threads = Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				Logging.getInstance().getLogger().warning("Invalid value for " + key + ": " +
+						value);
+			}
+		}
+		return threads < 1 ? defaultThreads : threads;
+	}
 }
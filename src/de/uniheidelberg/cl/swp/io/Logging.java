@@ -70,10 +70,13 @@ public class Logging {
 	
 	/**
 	 * Singleton implementation.
+	 * <br>
+	 * Synchronized, as the logger is used by concurrent threads (e.g. the parallel feature
+	 * extraction) and the log file must only be opened once.
 	 * 
 	 * @return An instance of Logging.
 	 */
-	public static Logging getInstance() {
+	public static synchronized Logging getInstance() {
 		if (instance == null) {
 			instance = new Logging();
 		}
@@ -50,9 +50,11 @@ import de.uniheidelberg.cl.swp.featureExtraction.FeatureExtractionProcess;
 import de.uniheidelberg.cl.swp.featureExtraction.FeatureExtractors;
 import de.uniheidelberg.cl.swp.io.Configuration;
 import de.uniheidelberg.cl.swp.io.Logging;
+import de.uniheidelberg.cl.swp.testacr.ChainEvaluation;
 import de.uniheidelberg.cl.swp.testacr.PerformanceMeasurementMain;
 import de.uniheidelberg.cl.swp.testacr.Runner;
 import de.uniheidelberg.cl.swp.util.CombinationGenerator;
+import de.uniheidelberg.cl.swp.util.CorpusLoader;
 import de.uniheidelberg.cl.swp.util.MMAXParser;
 
 
@@ -66,6 +68,18 @@ public class AblationTesting {
 	private List<AbstractFeatureExtractor> bestFeatureList;
 	private double bestFScore;
 	
+	/**
+	 * Average chain-level F-Score (MUC, B&sup3; and CEAF-e) of the best feature combination.
+	 */
+	private double bestChainFScore;
+	
+	/**
+	 * The entries of {@link FeatureExtractors} which are combined. Entries without any extractor,
+	 * e.g. an empty {@link de.uniheidelberg.cl.swp.featureExtraction.ExtractorFamily}, are left
+	 * out, so that no feature set is tested twice.
+	 */
+	private List<FeatureExtractors> featurePool;
+	
 	/**
 	 * Constructor to initialize ablation testing.
 	 */
@@ -88,8 +102,14 @@ public class AblationTesting {
 		Writer w = new FileWriter(outputFile);
 		bw = new BufferedWriter(w);
 		
+		featurePool = new ArrayList<FeatureExtractors>();
+		
+		for (FeatureExtractors fe : FeatureExtractors.values()) {
+			if (! fe.getFes().isEmpty()) featurePool.add(fe);
+		}
+		
 		/* go through all the possible combinations */
-		for(int i = 1; i <= FeatureExtractors.values().length; i++) {
+		for(int i = 1; i <= featurePool.size(); i++) {
 			System.out.println("\n** combining " + i + " features **\n");
 			combineMultipleFeatures(i);
 		}
@@ -104,9 +124,7 @@ public class AblationTesting {
 		allResults = new HashMap<MMAXParser, Map<String,List<CoreferencePair>>>();
 		List<String> mmaxTestFiles = PerformanceMeasurementMain.getMMAxFiles("Test");
 
-		for (String mmaxTestFile : mmaxTestFiles) {
-			MMAXParser mmaxParser = MMAXParser.processMMAXFile(mmaxTestFile);
-
+		for (MMAXParser mmaxParser : new CorpusLoader(mmaxTestFiles)) {
 			/* ACR-predictions */
 			Map<String,List<CoreferencePair>> testCorefs =
 				new HashMap<String,List<CoreferencePair>>();
@@ -160,18 +178,18 @@ public class AblationTesting {
 	 * @throws Exception Error occurred during the process.
 	 */
 	private void combineMultipleFeatures(int num) throws Exception {
-		FeatureExtractors[] f = FeatureExtractors.values();
+		List<FeatureExtractors> f = featurePool;
 		int counter = 1;
 		
 		/* iterate over all possible combinations of num features */ 
-		List<List<Integer>> featureCombinations = getAllPossibleCombinations(f.length, num);
+		List<List<Integer>> featureCombinations = getAllPossibleCombinations(f.size(), num);
 		for (List<Integer> featureSet : featureCombinations) {
 			System.out.println("## using combination " + counter + " of " + 
 									featureCombinations.size() + " ##");
 			
 			List<AbstractFeatureExtractor> featureList = new ArrayList<AbstractFeatureExtractor>();
 			
-			for (Integer featureNum : featureSet) { featureList.add(f[featureNum].getFe()); }
+			for (Integer featureNum : featureSet) { featureList.addAll(f.get(featureNum).getFes()); }
 			
 			runMLProcess(featureList);
 			counter += 1;
@@ -224,14 +242,24 @@ public class AblationTesting {
 		
 		double fscore = 2 * ((precision * recall) / (precision + recall));
 		
-		if (2 * ((precision * recall) / (precision + recall)) > bestFScore) {
+		/* the chain-level scores are only reported, the pairwise F-Score selects the combination */
+		ChainEvaluation chainEval = mlp.getEval().getChainEvaluation();
+		double chainFScore = chainEval.getAverageFScore();
+		
+		if (fscore > bestFScore) {
 			bestFeatureList = featureList;
-			bestFScore = 2 * ((precision * recall) / (precision + recall)); 
+			bestFScore = fscore; 
+			bestChainFScore = chainFScore;
 		}
 		
 		bw.write("\n\nFeature combination: " + sb.toString() + "\nRecall: " + recall +
 				"\nPrecision: " + precision + "\nF-Score: " + fscore);
 		
+		for (ChainEvaluation.Metric metric : ChainEvaluation.Metric.values()) {
+			bw.write("\n" + metric + " F-Score: " + chainEval.getFScore(metric));
+		}
+		bw.write("\nAverage chain F-Score: " + chainFScore);
+		
 		bw.flush();
 	}
 	
@@ -249,10 +277,12 @@ public class AblationTesting {
 		}
 		
 		System.out.println("\n\n######\nBest feature combination: " + sb.toString() +
-				"\nF-Score: " + bestFScore + "\n######\n");
+				"\nF-Score: " + bestFScore + "\nAverage chain F-Score: " + bestChainFScore + 
+				"\n######\n");
 		
 		bw.write("\n\n######\nBest feature combination: " + sb.toString() +
-				"\nF-Score: " + bestFScore + "\n######\n");
+				"\nF-Score: " + bestFScore + "\nAverage chain F-Score: " + bestChainFScore + 
+				"\n######\n");
 		
 		bw.close();
 	}
@@ -306,12 +336,14 @@ public class AblationTesting {
 	 */
 	private Instances copyInstances(Instances source, ArrayList<Attribute> targetStructure) {
 		Instances target = new Instances("ACResolution", targetStructure, 0);
+		int[] sourceIndices = getAttributeIndices(source, targetStructure);
 		
 		for (int i = 0; i < source.numInstances(); i++) {
 			double[] vals = new double[targetStructure.size()];
+			Instance inst = source.instance(i);
 			
-			for (int z = 0; z < targetStructure.size(); z++) {
-				vals[z] = getAttributeValue(source.instance(i), targetStructure.get(z).name());
+			for (int z = 0; z < sourceIndices.length; z++) {
+				vals[z] = inst.value(sourceIndices[z]);
 			}
 			Instance in = new DenseInstance(1.0, vals);
 			target.add(in);
@@ -320,17 +352,29 @@ public class AblationTesting {
 	}
 	
 	/**
-	 * Determines the attribute value for a Instance object and the specified attribute name.
+	 * Determines the position of each target attribute in the source Instances.
 	 * 
-	 * @param inst The instance object from which the value is extracted.
-	 * @param featureName The name of the attribute.
-	 * @return A double representation of the value used by WEKA.
+	 * @param source The Instances object containing all the Instance objects from the source file.
+	 * @param targetStructure The attributes of the copy.
+	 * @return The position of the source attribute for each target attribute.
 	 */
-	private double getAttributeValue(Instance inst, String featureName) {
-		for (int i = 0; i < inst.numAttributes(); i++) {
-			if (inst.attribute(i).name().equals(featureName)) return inst.value(i); 
+	private int[] getAttributeIndices(Instances source, List<Attribute> targetStructure) {
+		Map<String,Integer> sourceIndices = new HashMap<String,Integer>();
+		int[] indices = new int[targetStructure.size()];
+		
+		for (int i = 0; i < source.numAttributes(); i++) {
+			sourceIndices.put(source.attribute(i).name(), i);
+		}
+		for (int z = 0; z < indices.length; z++) {
+			Integer index = sourceIndices.get(targetStructure.get(z).name());
+			
+			if (index == null) {
+				throw new IllegalArgumentException("Unknown attribute " + 
+						targetStructure.get(z).name());
+			}
+			indices[z] = index;
 		}
-		return 0;
+		return indices;
 	}
 
 	/**
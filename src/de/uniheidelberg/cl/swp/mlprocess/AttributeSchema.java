@@ -0,0 +1,231 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.mlprocess
+ * class: AttributeSchema
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.mlprocess;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.Utils;
+import de.uniheidelberg.cl.swp.datastructure.Feature;
+import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+
+/**
+ * The attribute structure of an {@link InstanceContainer}, compiled once for the list of
+ * {@link AbstractFeatureExtractor}s it has been created from.
+ * <br>
+ * The schema maps every feature extractor to the position of its WEKA Attribute and every
+ * nominal value code of the feature vector to the index of the value in the Attribute, so
+ * Instances can be built from the feature values without looking up names or values.
+ */
+public class AttributeSchema {
+	private final List<AbstractFeatureExtractor> featureList;
+	
+	/**
+	 * Position of the Attribute of each feature extractor.
+	 */
+	private final int[] attributes;
+	
+	/**
+	 * Index of the Attribute value of each nominal value code, <code>null</code> for numeric
+	 * features and for nominal features whose codes already are the value indices.
+	 */
+	private final double[][] valueIndices;
+	
+	private final Map<String,Integer> attributeIndices;
+	private final Map<String,Integer> slotIndices;
+	private final Map<String,Double> acrValues;
+	private final Map<String,Double> resultValues;
+	private final int numAttributes;
+
+	/**
+	 * Compiles the schema of an attribute structure.
+	 * 
+	 * @param instances The Instances whose last two Attributes are the ACR-System and the result.
+	 * @param featureList The feature extractors the Instances have been created from.
+	 */
+	public AttributeSchema(Instances instances, List<AbstractFeatureExtractor> featureList) {
+		this.featureList = featureList;
+		this.numAttributes = instances.numAttributes();
+		this.attributeIndices = new HashMap<String,Integer>();
+
+		for (int i = 0; i < numAttributes; i++) {
+			attributeIndices.put(instances.attribute(i).name(), i);
+		}
+		this.attributes = new int[featureList.size()];
+		this.valueIndices = new double[featureList.size()][];
+		this.slotIndices = new HashMap<String,Integer>();
+
+		for (int slot = 0; slot < attributes.length; slot++) {
+			AbstractFeatureExtractor fe = featureList.get(slot);
+			attributes[slot] = getAttributeIndex(fe.getName());
+			valueIndices[slot] = compileValues(fe, instances.attribute(attributes[slot]));
+			slotIndices.put(fe.getName(), slot);
+		}
+		this.acrValues = compileValues(instances.attribute(numAttributes - 2));
+		this.resultValues = compileValues(instances.attribute(numAttributes - 1));
+	}
+
+	/**
+	 * Maps the value codes of a nominal feature to the indices of the values in its Attribute.
+	 * 
+	 * @return The index of each code or <code>null</code> if every code is its own index.
+	 */
+	private static double[] compileValues(AbstractFeatureExtractor fe, Attribute attribute) {
+		double[] indices = new double[fe.getValueCount()];
+		boolean identity = true;
+
+		for (int code = 0; code < indices.length; code++) {
+			Feature<?> value = fe.toFeature(code);
+			indices[code] = attribute.indexOfValue(value.getStringValue());
+
+			if (indices[code] < 0) {
+				throw new IllegalStateException("Attribute " + attribute.name() + 
+						" has no value " + value.getStringValue());
+			}
+			identity &= indices[code] == code;
+		}
+		return identity ? null : indices;
+	}
+
+	/**
+	 * Maps the values of a nominal Attribute to their indices.
+	 */
+	private static Map<String,Double> compileValues(Attribute attribute) {
+		Map<String,Double> values = new HashMap<String,Double>();
+
+		for (int i = 0; i < attribute.numValues(); i++) {
+			values.put(attribute.value(i), (double) i);
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the number of Attributes including the ACR-System and the result.
+	 * 
+	 * @return The number of Attributes.
+	 */
+	public int numAttributes() {
+		return numAttributes;
+	}
+
+	/**
+	 * Returns the feature extractors the schema has been compiled for.
+	 * 
+	 * @return The feature extractors, one for each slot of a feature vector.
+	 */
+	public List<AbstractFeatureExtractor> getFeatureList() {
+		return featureList;
+	}
+
+	/**
+	 * Takes the name of an Attribute and returns its position.
+	 * 
+	 * @param name Name of the Attribute.
+	 * @return Position of the Attribute.
+	 * @throws IllegalArgumentException If there is no Attribute with this name.
+	 */
+	public int getAttributeIndex(String name) {
+		Integer index = attributeIndices.get(name);
+
+		if (index == null) throw new IllegalArgumentException("Unknown attribute " + name);
+		return index;
+	}
+
+	/**
+	 * Returns the position of the Attribute of a feature.
+	 * 
+	 * @param slot Slot of the feature.
+	 * @return Position of the Attribute.
+	 */
+	public int getAttribute(int slot) {
+		return attributes[slot];
+	}
+
+	/**
+	 * Takes the name of a feature and returns the slot of its extractor.
+	 * 
+	 * @param name Name of the feature.
+	 * @return Slot of the feature in the feature vectors of this schema.
+	 * @throws IllegalArgumentException If no feature extractor has this name.
+	 */
+	public int getSlot(String name) {
+		Integer slot = slotIndices.get(name);
+
+		if (slot == null) throw new IllegalArgumentException("Unknown feature " + name);
+		return slot;
+	}
+
+	/**
+	 * Writes the value of a feature into the values of an Instance.
+	 * 
+	 * @param slot Slot of the feature.
+	 * @param value The value in the encoding of the feature vector, NaN if it is missing.
+	 * @param vals The values of the Instance.
+	 */
+	public void setFeatureValue(int slot, double value, double[] vals) {
+		double[] indices = valueIndices[slot];
+
+		if (indices != null && !Double.isNaN(value)) value = indices[(int) value];
+		vals[attributes[slot]] = value;
+	}
+
+	/**
+	 * Writes all values of a feature vector of this schema into the values of an Instance.
+	 * 
+	 * @param values The feature vector, one slot for each feature extractor.
+	 * @param vals The values of the Instance.
+	 */
+	public void setFeatureValues(double[] values, double[] vals) {
+		for (int slot = 0; slot < attributes.length; slot++) {
+			setFeatureValue(slot, values[slot], vals);
+		}
+	}
+
+	/**
+	 * Writes the ACR-System and the result into the values of an Instance.
+	 * 
+	 * @param acr ACR-System.
+	 * @param result Result of the ACR-System, "?" for an unknown result.
+	 * @param vals The values of the Instance.
+	 */
+	public void setOutcome(String acr, String result, double[] vals) {
+		vals[numAttributes - 2] = valueOf(acrValues, acr);
+		vals[numAttributes - 1] = valueOf(resultValues, result);
+	}
+
+	/**
+	 * Returns the index of a nominal value, the WEKA missing value for unknown values.
+	 */
+	private static double valueOf(Map<String,Double> values, String value) {
+		Double index = values.get(value);
+
+		return index != null ? index : Utils.missingValue();
+	}
+}
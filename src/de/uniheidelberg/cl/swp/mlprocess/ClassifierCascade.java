@@ -0,0 +1,253 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.mlprocess
+ * class: ClassifierCascade
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.mlprocess;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import de.uniheidelberg.cl.swp.io.Configuration;
+import de.uniheidelberg.cl.swp.io.Logging;
+
+
+/**
+ * A cheap first stage in front of the classifier of the {@link MLProcess}.
+ * <br>
+ * <p>The first stage is trained on the training Instances reduced to a few features which are
+ * cheap to extract (e.g. distance, sentenceOffset and stringMatch). If the probability it assigns
+ * to a correct prediction ("+") lies outside an uncertainty band, the pair is labeled by the
+ * first stage; only the other pairs are passed to the main classifier. As the first stage only
+ * reads its own attributes, the other features of the pairs it decides are never extracted (see
+ * {@link LazyInstance}).</p>
+ * <br>
+ * <p>The related config options are "CascadeFeatures" (separated by ';'),
+ * "CascadeClassifier" (e.g. J48, empty = no cascade), "CascadeLowerBound" and
+ * "CascadeUpperBound".</p>
+ */
+public class ClassifierCascade {
+	private final WEKARunner firstStage;
+	
+	/**
+	 * The reduced attribute structure of the first stage.
+	 */
+	private final Instances header;
+	
+	private final double lowerBound;
+	private final double upperBound;
+	
+	/**
+	 * Index of the labels "+" and "-" of the class attribute.
+	 */
+	private final double positive;
+	private final double negative;
+	
+	/**
+	 * Position of each attribute of the first stage in the last classified attribute structure.
+	 */
+	private Instances dataset;
+	private int[] sourceIndices;
+	
+	private int classified;
+	private int decided;
+	
+	/**
+	 * Trains the first stage.
+	 * 
+	 * @param train The training Instances of the main classifier.
+	 * @param features Names of the features of the first stage.
+	 * @param classifier Type of the classifier of the first stage, see {@link WEKARunner}.
+	 * @param lowerBound Pairs with a lower probability of "+" are labeled "-".
+	 * @param upperBound Pairs with a higher probability of "+" are labeled "+".
+	 * @throws IllegalArgumentException If a feature of the first stage is missing in the
+	 * 		   training data.
+	 * @throws Exception If the first stage couldn't be trained.
+	 */
+	public ClassifierCascade(Instances train, List<String> features, String classifier,
+			double lowerBound, double upperBound) throws Exception {
+		this.header = new Instances(train);
+		
+		/* keep the cheap features and the class attribute */
+		for (int i = header.numAttributes() - 2; i >= 0; i--) {
+			if (!features.contains(header.attribute(i).name())) {
+				header.deleteAttributeAt(i);
+			}
+		}
+		header.setClassIndex(header.numAttributes() - 1);
+		
+		if (header.numAttributes() != features.size() + 1) {
+			throw new IllegalArgumentException("Cascade features missing in the training data");
+		}
+		this.firstStage = new WEKARunner(header);
+		this.firstStage.run(classifier, "");
+		
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		this.positive = header.classAttribute().indexOfValue("+");
+		this.negative = header.classAttribute().indexOfValue("-");
+		
+		if (positive < 0 || negative < 0) {
+			throw new IllegalArgumentException("Class attribute without the labels + and -");
+		}
+	}
+	
+	/**
+	 * Creates the cascade configured in the {@link Configuration}.
+	 * 
+	 * @param train The training Instances of the main classifier.
+	 * @return The cascade or <code>null</code> if no cascade is configured or a cascade feature
+	 * 		   is missing in the training data.
+	 * @throws Exception If the first stage couldn't be trained.
+	 */
+	public static ClassifierCascade fromConfiguration(Instances train) throws Exception {
+		Properties properties = Configuration.getInstance().getProperties();
+		String classifier = properties.getProperty("CascadeClassifier", "").trim();
+		String features = properties.getProperty("CascadeFeatures", "").trim();
+		
+		if (classifier.isEmpty() || features.isEmpty()) {
+			return null;
+		}
+		List<String> featureList = new ArrayList<String>();
+		
+		for (String feature : features.split(";")) {
+			featureList.add(feature.trim());
+			
+			/* a first stage without all of its features would decide on too little evidence */
+			if (train.attribute(feature.trim()) == null) {
+				Logging.getInstance().getLogger().warning("Cascade feature " + feature.trim() + 
+						" missing in the training data, the cascade is disabled");
+				return null;
+			}
+		}
+		return new ClassifierCascade(train, featureList, classifier,
+				Double.parseDouble(properties.getProperty("CascadeLowerBound", "0")),
+				Double.parseDouble(properties.getProperty("CascadeUpperBound", "1")));
+	}
+	
+	/**
+	 * Labels an Instance if the first stage is confident.
+	 * <br>
+	 * Safe to be called concurrently. The attributes of the first stage are read (and extracted
+	 * by a {@link LazyInstance}) by the calling thread without holding a lock.
+	 * 
+	 * @param instance Instance of the attribute structure of the main classifier.
+	 * @return The label or a WEKA missing value if the pair has to be passed to the main
+	 * 		   classifier.
+	 * @throws Exception If the Instance couldn't be labeled.
+	 */
+	public double classify(Instance instance) throws Exception {
+		double[] vals = new double[header.numAttributes()];
+		int[] sources = getSourceIndices(instance.dataset());
+		
+		/* read only the attributes of the first stage */
+		for (int i = 0; i < sources.length; i++) {
+			vals[i] = sources[i] < 0 ? Utils.missingValue() : instance.value(sources[i]);
+		}
+		vals[vals.length - 1] = Utils.missingValue();
+		
+		Instance reduced = new DenseInstance(1.0, vals);
+		reduced.setDataset(header);
+		
+		double probability = firstStage.getDistribution(reduced)[(int) positive];
+		
+		if (probability < lowerBound) {
+			count(true);
+			return negative;
+		}
+		if (probability > upperBound) {
+			count(true);
+			return positive;
+		}
+		count(false);
+		return Utils.missingValue();
+	}
+	
+	/**
+	 * Counts a classified Instance.
+	 * 
+	 * @param exited Whether the Instance has been labeled by the first stage.
+	 */
+	private synchronized void count(boolean exited) {
+		classified++;
+		if (exited) decided++;
+	}
+	
+	/**
+	 * Maps the attributes of the first stage to the attributes of a dataset by name.
+	 */
+	private synchronized int[] getSourceIndices(Instances source) {
+		if (source != dataset) {
+			sourceIndices = new int[header.numAttributes() - 1];
+			
+			for (int i = 0; i < sourceIndices.length; i++) {
+				String name = header.attribute(i).name();
+				sourceIndices[i] = source.attribute(name) == null ? 
+						-1 : source.attribute(name).index();
+			}
+			dataset = source;
+		}
+		return sourceIndices;
+	}
+	
+	/**
+	 * Returns the names of the attributes the first stage reads.
+	 * 
+	 * @return The attributes tested by the first stage or, if they are unknown, all of its
+	 * 		   features.
+	 */
+	public Set<String> getReferencedAttributes() {
+		Set<String> referenced = firstStage.getReferencedAttributes();
+		
+		if (referenced == null) {
+			referenced = new HashSet<String>();
+			
+			for (int i = 0; i < header.numAttributes() - 1; i++) {
+				referenced.add(header.attribute(i).name());
+			}
+		}
+		return referenced;
+	}
+	
+	/**
+	 * Getter for the number of Instances which have been passed to the cascade.
+	 * 
+	 * @return Number of classified Instances.
+	 */
+	public synchronized int getClassifiedCount() {return classified;}
+	
+	/**
+	 * Getter for the number of Instances which have been labeled by the first stage.
+	 * 
+	 * @return Number of Instances which exited the cascade early.
+	 */
+	public synchronized int getDecidedCount() {return decided;}
+}
@@ -28,6 +28,7 @@
 package de.uniheidelberg.cl.swp.mlprocess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,9 +36,13 @@ import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
 import de.uniheidelberg.cl.swp.datastructure.Feature;
+import de.uniheidelberg.cl.swp.datastructure.PairTable;
 import de.uniheidelberg.cl.swp.featureExtraction.AbstractFeatureExtractor;
+import de.uniheidelberg.cl.swp.featureExtraction.FeatureExtractionProcess;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
 import de.uniheidelberg.cl.swp.featureExtraction.features.FeatureType;
 import de.uniheidelberg.cl.swp.testacr.BARTRunner;
 import de.uniheidelberg.cl.swp.testacr.JavaRapRunner;
@@ -51,6 +56,11 @@ import de.uniheidelberg.cl.swp.testacr.LingpipeRunner;
  */
 public class InstanceContainer {
 	private Instances instances;
+	
+	/**
+	 * The compiled attribute structure.
+	 */
+	private AttributeSchema schema;
 
 	/**
 	 * Takes a list of {@link AbstractFeatureExtractor} and adds the corresponding feature as a
@@ -87,23 +97,7 @@ public class InstanceContainer {
 
 		this.instances = new Instances("ACResolution", wekaAttributes, 0);
 		this.instances.setClassIndex(this.instances.numAttributes() - 1);
-	}
-
-	/**
-	 * Takes the name of a feature and returns the position of the corresponding WEKA Attribute
-	 * object for the feature.
-	 * <br>
-	 * This has to be done to maintain the correlation between feature and attribute.
-	 * 
-	 * @param name Name of the feature.
-	 * @return Position of the corresponding attribute.
-	 */
-	private int getAttributeByName(String name) {
-		for (int i = 0; i < this.instances.numAttributes(); i++) {
-			if (this.instances.attribute(i).name().equals(name))
-				return i; 
-		}
-		return 0;
+		this.schema = new AttributeSchema(this.instances, featureList);
 	}
 
 	/**
@@ -120,24 +114,12 @@ public class InstanceContainer {
 	 * @return Instance object which has been added.
 	 */
 	public Instance addCorefInstance(CoreferencePair corefPair, String acr, String result)  {
-		double[] vals = new double[this.instances.numAttributes()];
+		double[] vals = new double[this.schema.numAttributes()];
 
-		for (Feature<?> fe : corefPair.getFeatuerVector()) {
-			int currentCorefAttribute = getAttributeByName(fe.getName());
-
-			/* if the current feature is numeric, parse the value as integer */
-			if (fe.getFtype() == FeatureType.NUMERIC) {
-				vals[currentCorefAttribute] = Double.parseDouble(fe.getStringValue());
-			}
-			else { vals[currentCorefAttribute] = 
-				this.instances.attribute(currentCorefAttribute).indexOfValue(fe.getStringValue());
-			}
-		}
-		/* (vals.length-2) contains the acrRunner which made the prediction */
-		vals[vals.length-2] = this.instances.attribute(vals.length-2).indexOfValue(acr);
-
-		/* (vals.length-1) describes whether the system made the correct prediction */
-		vals[vals.length-1] = this.instances.attribute(vals.length-1).indexOfValue(result);
+		setFeatureValues(corefPair, vals);
+		/* (vals.length-2) contains the acrRunner which made the prediction,
+		 * (vals.length-1) describes whether the system made the correct prediction */
+		this.schema.setOutcome(acr, result, vals);
 
 		Instance inst = new DenseInstance(1.0, vals);
 		this.instances.add(inst);
@@ -158,11 +140,87 @@ public class InstanceContainer {
 	 * @return Instance object which has been added.
 	 */
 	public Instance addCorefInstance(CoreferencePair corefPair, String acr)  {
-		double[] vals = new double[this.instances.numAttributes()];
+		double[] vals = new double[this.schema.numAttributes()];
+
+		setFeatureValues(corefPair, vals);
+		this.schema.setOutcome(acr, "?", vals);
 
+		Instance inst = new DenseInstance(1.0, vals);
+
+		this.instances.add(inst);
+
+		return inst;
+	}
+
+	/**
+	 * Creates an Instance for a test {@link CoreferencePair} whose features are extracted when
+	 * the classifier reads them (see {@link LazyInstance}).
+	 * <br>
+	 * The Instance belongs to the Instances of this container but isn't added to them, since
+	 * adding copies the Instance and thereby extracts all of its features.
+	 * 
+	 * @param corefPair {@link CoreferencePair} to be classified.
+	 * @param acr ACR-System.
+	 * @param fep The {@link FeatureExtractionProcess} the attribute structure has been created
+	 * 		  from.
+	 * @param context The context of the document of the pair.
+	 * @param active For each slot, whether the feature is extracted; inactive features stay
+	 * 		  missing.
+	 * @return The Instance.
+	 * @throws IllegalArgumentException If the attribute structure has been created from other
+	 * 		   feature extractors.
+	 */
+	public Instance createLazyInstance(CoreferencePair corefPair, String acr,
+			FeatureExtractionProcess fep, PairContext context, boolean[] active) {
+		if (fep.getFeatureExtractorList() != this.schema.getFeatureList()) {
+			throw new IllegalArgumentException("Attribute structure of other feature extractors");
+		}
+		double[] vals = new double[this.schema.numAttributes()];
+		int[] pending = new int[vals.length];
+
+		Arrays.fill(vals, Utils.missingValue());
+		Arrays.fill(pending, -1);
+		this.schema.setOutcome(acr, "?", vals);
+
+		for (int slot = 0; slot < active.length; slot++) {
+			if (active[slot]) pending[this.schema.getAttribute(slot)] = slot;
+		}
+		Instance inst = new LazyInstance(vals, pending, this.schema, fep, context, corefPair);
+		inst.setDataset(this.instances);
+
+		return inst;
+	}
+
+	/**
+	 * Copies the feature values of a {@link CoreferencePair} into the values of an Instance.
+	 * <br>
+	 * Primitive feature values are mapped through the compiled {@link AttributeSchema}; if they
+	 * come from other feature extractors than the attribute structure, their slots are matched
+	 * by name. Missing values (NaN) become WEKA missing values.
+	 * 
+	 * @param corefPair {@link CoreferencePair} with extracted features.
+	 * @param vals The values of the Instance.
+	 */
+	private void setFeatureValues(CoreferencePair corefPair, double[] vals) {
+		double[] values = corefPair.getFeatureValues();
+
+		if (values != null) {
+			List<AbstractFeatureExtractor> extractors = corefPair.getFeatureExtractors();
+
+			if (extractors == this.schema.getFeatureList()) {
+				this.schema.setFeatureValues(values, vals);
+				return;
+			}
+			for (int i = 0; i < values.length; i++) {
+				int slot = this.schema.getSlot(extractors.get(i).getName());
+				this.schema.setFeatureValue(slot, values[i], vals);
+			}
+			return;
+		}
 		for (Feature<?> fe : corefPair.getFeatuerVector()) {
-			int currentCorefAttribute = getAttributeByName(fe.getName());
-			
+			int currentCorefAttribute = this.schema.getAttributeIndex(fe.getName());
+
+			/* if the current feature is numeric, parse the value as integer */
 			if (fe.getFtype() == FeatureType.NUMERIC) {
 				vals[currentCorefAttribute] = Double.parseDouble(fe.getStringValue());
 			}
@@ -170,14 +228,6 @@ public class InstanceContainer {
 				this.instances.attribute(currentCorefAttribute).indexOfValue(fe.getStringValue());
 			}
 		}
-		vals[vals.length-2] = this.instances.attribute(vals.length-2).indexOfValue(acr);
-		vals[vals.length-1] = this.instances.attribute(vals.length-1).indexOfValue("?");
-
-		Instance inst = new DenseInstance(1.0, vals);
-
-		this.instances.add(inst);
-
-		return inst;
 	}
 
 	/**
@@ -199,6 +249,75 @@ public class InstanceContainer {
 		return crpInstAlignment;
 	}		
 
+	/**
+	 * Adds all pairs of a {@link PairTable} to the list of Instances.
+	 * <br>
+	 * The feature columns of the table are matched to the {@link AttributeSchema} by name once,
+	 * the values are taken from the feature matrix of the table.
+	 * 
+	 * @param table {@link PairTable} with extracted features.
+	 * @param acr ACR-System, used for pairs without an ACR-System in the table.
+	 * @param result Result of the ACR-System for the pairs, "?" for unknown pairs.
+	 * @return The Instance objects which have been added, in the order of the rows.
+	 */
+	public List<Instance> addCorefInstances(PairTable table, String acr, String result) {
+		List<Instance> added = new ArrayList<Instance>(table.size());
+		int[] slots = getSlots(table);
+
+		for (int row = 0; row < table.size(); row++) {
+			added.add(addCorefInstance(table, row, slots, acr, result));
+		}
+		return added;
+	}
+
+	/**
+	 * Adds a single pair of a {@link PairTable} to the Instances.
+	 * 
+	 * @param table {@link PairTable} with extracted features.
+	 * @param row Row of the pair.
+	 * @param acr ACR-System, used if the pair has no ACR-System in the table.
+	 * @param result Result of the ACR-System for the pair, "?" for an unknown pair.
+	 * @return Instance object which has been added.
+	 */
+	public Instance addCorefInstance(PairTable table, int row, String acr, String result) {
+		return addCorefInstance(table, row, getSlots(table), acr, result);
+	}
+
+	/**
+	 * Creates and adds the Instance of a row.
+	 * 
+	 * @param slots Slot of each feature column in the {@link AttributeSchema}.
+	 */
+	private Instance addCorefInstance(PairTable table, int row, int[] slots, String acr,
+			String result) {
+		double[] vals = new double[this.schema.numAttributes()];
+
+		for (int column = 0; column < slots.length; column++) {
+			this.schema.setFeatureValue(slots[column], table.getFeature(row, column), vals);
+		}
+		String system = table.getAcrSystem(row) != null ? table.getAcrSystem(row) : acr;
+		this.schema.setOutcome(system, result, vals);
+
+		Instance inst = new DenseInstance(1.0, vals);
+		this.instances.add(inst);
+		return inst;
+	}
+
+	/**
+	 * Maps the feature columns of a {@link PairTable} to the slots of the {@link AttributeSchema}.
+	 * 
+	 * @param table {@link PairTable} with extracted features.
+	 * @return Slot of each feature column.
+	 */
+	private int[] getSlots(PairTable table) {
+		int[] slots = new int[table.getFeatureCount()];
+
+		for (int column = 0; column < slots.length; column++) {
+			slots[column] = this.schema.getSlot(table.getFeatureName(column));
+		}
+		return slots;
+	}
+
 	/**
 	 * Getter for the Instances object which contains the stored Instance objects.
 	 * 
@@ -207,4 +326,13 @@ public class InstanceContainer {
 	public Instances getInstances() {
 		return instances;
 	}
+
+	/**
+	 * Getter for the compiled attribute structure.
+	 * 
+	 * @return The {@link AttributeSchema} or <code>null</code> if no structure has been created.
+	 */
+	public AttributeSchema getSchema() {
+		return schema;
+	}
 }
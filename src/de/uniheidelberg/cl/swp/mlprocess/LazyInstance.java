@@ -0,0 +1,156 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.mlprocess
+ * class: LazyInstance
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.mlprocess;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.featureExtraction.FeatureExtractionProcess;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
+
+
+/**
+ * An Instance whose feature values are extracted when they are read for the first time.
+ * <br>
+ * <p>A classifier only extracts the features it actually looks at, e.g. a decision tree those
+ * along the path of the pair. The values are the same as those of an eagerly extracted
+ * Instance, so the classification doesn't change. Features which are known to be unused (see
+ * {@link WEKARunner#getReferencedAttributes()}) are never extracted and stay missing.</p>
+ * <br>
+ * <p>An Instance is bound to the {@link PairContext} of its document and must only be used by
+ * the thread which owns that context. Copies are ordinary Instances with all values
+ * extracted.</p>
+ */
+public class LazyInstance extends DenseInstance {
+	private static final long serialVersionUID = 1L;
+
+	private final AttributeSchema schema;
+	private final FeatureExtractionProcess fep;
+	private final PairContext context;
+	private final CoreferencePair corefPair;
+
+	/**
+	 * Slot of each Attribute whose value hasn't been extracted yet, -1 for the others.
+	 */
+	private final int[] pending;
+
+	/**
+	 * Creates an Instance whose feature values will be extracted on demand.
+	 * 
+	 * @param vals The values of the Instance, the features still missing.
+	 * @param pending Slot of each Attribute which has to be extracted on demand, -1 for the
+	 * 		  others.
+	 * @param schema The compiled attribute structure.
+	 * @param fep The {@link FeatureExtractionProcess} of the attribute structure.
+	 * @param context The context of the document of the pair.
+	 * @param corefPair The {@link CoreferencePair} of the Instance.
+	 */
+	LazyInstance(double[] vals, int[] pending, AttributeSchema schema, FeatureExtractionProcess fep,
+			PairContext context, CoreferencePair corefPair) {
+		super(1.0, vals);
+		this.pending = pending;
+		this.schema = schema;
+		this.fep = fep;
+		this.context = context;
+		this.corefPair = corefPair;
+	}
+
+	/**
+	 * Extracts the value of an Attribute if it hasn't been extracted yet.
+	 * 
+	 * @param attIndex Position of the Attribute.
+	 */
+	private void extract(int attIndex) {
+		int slot = pending[attIndex];
+
+		if (slot < 0) return;
+		pending[attIndex] = -1;
+
+		if (context.getPair() != corefPair) context.setPair(corefPair);
+		schema.setFeatureValue(slot, fep.extractFeature(context, slot), m_AttValues);
+	}
+
+	/**
+	 * Extracts all values which haven't been extracted yet.
+	 */
+	private void extractAll() {
+		for (int i = 0; i < pending.length; i++) {
+			extract(i);
+		}
+	}
+
+	@Override
+	public double value(int attIndex) {
+		extract(attIndex);
+		return super.value(attIndex);
+	}
+
+	@Override
+	public double value(Attribute att) {
+		return value(att.index());
+	}
+
+	@Override
+	public double valueSparse(int indexOfIndex) {
+		return value(indexOfIndex);
+	}
+
+	@Override
+	public boolean isMissing(int attIndex) {
+		extract(attIndex);
+		return super.isMissing(attIndex);
+	}
+
+	@Override
+	public boolean isMissing(Attribute att) {
+		return isMissing(att.index());
+	}
+
+	@Override
+	public boolean isMissingSparse(int indexOfIndex) {
+		return isMissing(indexOfIndex);
+	}
+
+	@Override
+	public double[] toDoubleArray() {
+		extractAll();
+		return super.toDoubleArray();
+	}
+
+	@Override
+	public Object copy() {
+		extractAll();
+		return super.copy();
+	}
+
+	@Override
+	public String toString() {
+		extractAll();
+		return super.toString();
+	}
+}
@@ -28,19 +28,31 @@
 package de.uniheidelberg.cl.swp.mlprocess;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.datastructure.PairTable;
 import de.uniheidelberg.cl.swp.featureExtraction.FeatureExtractionProcess;
+import de.uniheidelberg.cl.swp.featureExtraction.PairContext;
 import de.uniheidelberg.cl.swp.io.ACRResultWriter;
 import de.uniheidelberg.cl.swp.io.Configuration;
+import de.uniheidelberg.cl.swp.io.Logging;
+import de.uniheidelberg.cl.swp.testacr.ChainEvaluation;
 import de.uniheidelberg.cl.swp.testacr.Evaluation;
 import de.uniheidelberg.cl.swp.testacr.PerformanceMeasurementMain;
 import de.uniheidelberg.cl.swp.testacr.Runner;
+import de.uniheidelberg.cl.swp.util.CorpusLoader;
 import de.uniheidelberg.cl.swp.util.MMAXParser;
 
 
@@ -59,6 +71,18 @@ public class MLProcess {
 	private Evaluation eval;
 	private FeatureExtractionProcess fep;
 	private String options = "";
+	
+	/**
+	 * Whether test features are extracted on demand of the classifier and the names of the
+	 * attributes the classifier tests (<code>null</code> = all).
+	 */
+	private boolean lazyFeatures;
+	private Set<String> referencedAttributes;
+	
+	/**
+	 * Cheap first stage in front of the classifier, <code>null</code> if none is configured.
+	 */
+	private ClassifierCascade cascade;
 
 	/**
 	 * The constructor initializes the necessary data structures and reads the config options.
@@ -154,6 +178,19 @@ public class MLProcess {
 		else {
 			wr.run(config.getProperties().getProperty("classifier"), options);
 		}
+		
+		lazyFeatures = Boolean.parseBoolean(
+				config.getProperties().getProperty("LazyFeatureExtraction"));
+		referencedAttributes = wr.getReferencedAttributes();
+		cascade = ClassifierCascade.fromConfiguration(wr.getTrainingInstances());
+		
+		if (referencedAttributes != null && cascade != null) {
+			referencedAttributes.addAll(cascade.getReferencedAttributes());
+		}
+		if (referencedAttributes != null) {
+			Logging.getInstance().getLogger().info("Classifier tests the attributes " + 
+					referencedAttributes);
+		}
 	}
 
 	/**
@@ -165,10 +202,6 @@ public class MLProcess {
 	private Map<String,List<CoreferencePair>> extractTestCorefs(
 			MMAXParser mmaxParser) throws Exception {
 		Map<String,List<CoreferencePair>> testCorefs = new HashMap<String,List<CoreferencePair>>();
-		
-		/* temporary container to convert our coreferences to a WEKA-compatible format */
-		ic = new InstanceContainer();
-		ic.createAttributeStructure(fep.getFeatureExtractorList());
 
 		for (Runner acrsys : config.getAcRRunner()) {
 			acrsys.init(mmaxParser);
@@ -177,8 +210,6 @@ public class MLProcess {
 			List<CoreferencePair> predictionList =
 				MMAXParser.splitCorefChainsToPairs(acrsys.getCoreferents());
 
-			fep.extractFeatures(predictionList, mmaxParser);
-
 			if (testCorefs.containsKey(acrsys.getClass().getCanonicalName())) {
 				testCorefs.get(acrsys.getClass().getCanonicalName()).addAll(predictionList);
 			}
@@ -189,31 +220,89 @@ public class MLProcess {
 		}
 		return testCorefs;
 	}
+	
+	/**
+	 * Merges the identical predictions of the ACR-Systems.
+	 * 
+	 * @param testCorefs {@link CoreferencePair}s extraced from the test corpus by the ACR-Systems.
+	 * @return The merged predictions.
+	 */
+	private PredictionAggregator aggregatePredictions(
+			Map<String,List<CoreferencePair>> testCorefs) {
+		PredictionAggregator predictions = new PredictionAggregator();
+		
+		for (List<CoreferencePair> predictionList : testCorefs.values()) {
+			for (CoreferencePair cp : predictionList) {
+				predictions.add(cp);
+			}
+		}
+		return predictions;
+	}
 
 	/**
 	 * Creates the classifications of the test-{@link CoreferencePair}s by using the classifier
 	 * trained on the test-{@link CoreferencePair}s.
 	 * 
 	 * @param testCorefs {@link CoreferencePair}s extraced from the test corpus by the ACR-Systems.
-	 * @return {@link CoreferencePair} which are predicted by our classifier to be correct.
+	 * @param predictions The merged predictions of the ACR-Systems, see
+	 * 		  {@link #aggregatePredictions(Map)}.
+	 * @param container Container to convert the {@link CoreferencePair}s to a WEKA-compatible
+	 * 		  format.
+	 * @param context Context of the document if the features are extracted on demand of the
+	 * 		  classifier, <code>null</code> if they have already been extracted.
+	 * @return {@link CoreferencePair} which are predicted by our classifier to be correct, each
+	 * 		   pair only once.
 	 */
-	private List<CoreferencePair> createPrediction(
-			Map<String,List<CoreferencePair>> testCorefs) throws Exception {
-		List<CoreferencePair> predictions = new ArrayList<CoreferencePair>();
+	private List<CoreferencePair> createPrediction(Map<String,List<CoreferencePair>> testCorefs,
+			PredictionAggregator predictions, InstanceContainer container, PairContext context)
+			throws Exception {
+		boolean[] active = context == null ? null : getActiveFeatures(context.getMmax());
+
 		for (String s : testCorefs.keySet()) {
 			for (final CoreferencePair cp : testCorefs.get(s)) {
-				Instance ini = ic.addCorefInstance(cp, s);
-				ini.setDataset(ic.getInstances());
+				Instance ini;
+				
+				if (context != null) {
+					ini = container.createLazyInstance(cp, s, fep, context, active);
+				}
+				else {
+					ini = container.addCorefInstance(cp, s);
+					ini.setDataset(container.getInstances());
+				}
+				/* pairs the first stage of the cascade is sure about skip the classifier */
+				double label = cascade == null ? Utils.missingValue() : cascade.classify(ini);
 
-				/* use the classifier to select a label */
-				if (wr.labelUnknownInstance(ini) == 0.0) {
+				/* use the classifier to select a label (each thread classifies with its own copy, 
+				 * so the features are extracted without holding a shared lock) */
+				if (Utils.isMissingValue(label)) {
+					label = wr.labelUnknownInstance(ini);
+				}
+				if (label == 0.0) {
 					cp.setAcrSystem(ini.stringValue(ini.numAttributes()-2));
-					predictions.add(cp);
+					predictions.accept(cp);
 				}
 			}
 		}
-		predictions = removeDuplicates(predictions);
-		return predictions;
+		return predictions.getAcceptedPairs();
+	}
+
+	/**
+	 * Determines the features which have to be extracted for the classifier: those the
+	 * classifier tests and whose markable levels exist in the document.
+	 * 
+	 * @param mmaxParser The test document.
+	 * @return For each slot of the feature extractors, whether the feature is extracted.
+	 */
+	private boolean[] getActiveFeatures(MMAXParser mmaxParser) {
+		boolean[] active = fep.getAvailableFeatures(mmaxParser);
+
+		if (referencedAttributes != null) {
+			for (int slot = 0; slot < active.length; slot++) {
+				String name = fep.getFeatureExtractorList().get(slot).getName();
+				active[slot] &= referencedAttributes.contains(name);
+			}
+		}
+		return active;
 	}
 
 	/**
@@ -224,8 +313,8 @@ public class MLProcess {
 	 * @param goldCorefPairs Gold standard.
 	 * @param fileName Results of the evaluation.
 	 */
-	private void doEvaluation(List<CoreferencePair> mlPredictions,
-			List<CoreferencePair> goldCorefPairs, String fileName) {
+	private void doEvaluation(List<CoreferencePair> mlPredictions, PairTable goldCorefPairs,
+			String fileName) {
 		eval.evaluateCorefPairs(mlPredictions, goldCorefPairs);
 
 		try {
@@ -237,31 +326,6 @@ public class MLProcess {
 		}
 	}
 
-	/**
-	 * Removes duplicates in our list.
-	 * 
-	 * @param corefList list of our predicted {@link CoreferencePair}s with duplicates.
-	 * @return list of our predicted {@link CoreferencePair}s without duplicates.
-	 */
-	private List<CoreferencePair> removeDuplicates(List<CoreferencePair> corefList) {
-		int count = 0;
-		List<CoreferencePair> targetList = new ArrayList<CoreferencePair>();
-
-		for (CoreferencePair coreferencePair : corefList) {
-			count = 0;
-			for (CoreferencePair coreferencePair2 : corefList) {
-				if (coreferencePair2.equals(coreferencePair)) {
-					count +=1;
-					continue;
-				}
-			}
-			if (count < 2) {
-				targetList.add(coreferencePair);
-			}
-		}
-		return targetList;
-	}
-
 	/**
 	 * Entry point for external callers.
 	 * 
@@ -271,31 +335,44 @@ public class MLProcess {
 	 * evaluated against the gold standard and important statistical data will be saved to a
 	 * file.</p>
 	 * 
+	 * <p>The documents are processed concurrently on a work-stealing pool, the number of threads
+	 * is specified by the "TestThreads" entry of the configuration. The results are written in
+	 * the order of the test files.</p>
+	 * 
 	 * @throws Exception If an error occurred during the MLProcess. 
 	 */
 	public void run() throws Exception {
 		List<String> mmaxTestFiles = PerformanceMeasurementMain.getMMAxFiles("Test");
+		int parallelism = config.getThreadCount("TestThreads");
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		Deque<Future<Evaluation>> pending = new ArrayDeque<Future<Evaluation>>();
+		Deque<String> pendingFiles = new ArrayDeque<String>();
 
-		for (String mmaxTestFile : mmaxTestFiles) {
-			MMAXParser mmaxParser = MMAXParser.processMMAXFile(mmaxTestFile);
-			
-			/* gold standard */
-			List<CoreferencePair> goldStandard = mmaxParser.getCorefPairs();
-
-			/* feature extraction for the attribute structure */
-			fep.extractFeatures(goldStandard, mmaxParser);
-
-			ic = new InstanceContainer();
-			ic.createAttributeStructure(fep.getFeatureExtractorList());
+		try {
+			for (final MMAXParser mmaxParser : new CorpusLoader(mmaxTestFiles)) {
+				pendingFiles.add(mmaxParser.getFileName());
+				pending.add(pool.submit(new Callable<Evaluation>() {
+					@Override
+					public Evaluation call() throws Exception {
+						return processDocument(mmaxParser);
+					}
+				}));
 
-			/* test coreferences */
-			Map<String,List<CoreferencePair>> testList = extractTestCorefs(mmaxParser);
-			
-			/* positive predictions */
-			List<CoreferencePair> predictions = createPrediction(testList);
-			
-			//predictions = removeDuplicates(predictions);
-			doEvaluation(predictions, goldStandard, mmaxTestFile);
+				/* write the results in file order and keep the number of open documents bounded */
+				while (pending.size() > 2 * parallelism) {
+					writeDocumentResult(pendingFiles.poll(), getResult(pending.poll()));
+				}
+			}
+			while (!pending.isEmpty()) {
+				writeDocumentResult(pendingFiles.poll(), getResult(pending.poll()));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		if (cascade != null) {
+			this.writer.writeCascadeResult(cascade.getDecidedCount(), cascade.getClassifiedCount());
+			System.out.println("Classifier cascade: " + cascade.getDecidedCount() + " of " +
+					cascade.getClassifiedCount() + " pairs labeled by the first stage");
 		}
 		this.writer.writeOverallResult(eval);
 		
@@ -306,6 +383,87 @@ public class MLProcess {
 				ResultOutputDir + "\n######\n");
 	}
 	
+	/**
+	 * Processes a single test document: runs the ACR-Systems, classifies their
+	 * {@link CoreferencePair}s and evaluates the predictions against the gold standard.
+	 * <br>
+	 * Documents are processed concurrently, so each call uses its own {@link InstanceContainer}
+	 * and {@link Evaluation}.
+	 * 
+	 * @param mmaxParser The parsed test document.
+	 * @return Evaluation of this document.
+	 * @throws Exception If the document couldn't be processed.
+	 */
+	private Evaluation processDocument(MMAXParser mmaxParser) throws Exception {
+		/* gold standard, stored column by column */
+		PairTable goldStandard = PairTable.fromEntities(mmaxParser.getGoldEntities(), mmaxParser);
+
+		/* feature extraction for the attribute structure and the results */
+		fep.extractFeatures(goldStandard);
+
+		/* temporary container to convert our coreferences to a WEKA-compatible format */
+		InstanceContainer container = new InstanceContainer();
+		container.createAttributeStructure(fep.getFeatureExtractorList());
+
+		/* test coreferences, identical predictions of several ACR-Systems are merged */
+		Map<String,List<CoreferencePair>> testList = extractTestCorefs(mmaxParser);
+		PredictionAggregator aggregator = aggregatePredictions(testList);
+		
+		/* pairs predicted by several ACR-Systems are extracted only once */
+		if (!lazyFeatures) fep.extractSharedFeatures(testList.values(), mmaxParser);
+
+		/* positive predictions, the classifier requests the features it needs */
+		PairContext context = lazyFeatures ? 
+				new PairContext(mmaxParser, fep.getMentionProperties(mmaxParser)) : null;
+		List<CoreferencePair> predictions = 
+			createPrediction(testList, aggregator, container, context);
+		
+		/* the features of the predictions are written to the results */
+		if (lazyFeatures) fep.extractFeatures(predictions, mmaxParser);
+
+		Evaluation documentEval = new Evaluation();
+		documentEval.evaluateCorefPairs(predictions, goldStandard);
+		documentEval.getChainEvaluation().evaluate(mmaxParser.getGoldEntities(),
+				ChainEvaluation.pairsToEntities(predictions));
+		return documentEval;
+	}
+
+	/**
+	 * Waits for a document task and rethrows the exception the task failed with.
+	 * 
+	 * @param result Pending result of {@link #processDocument(MMAXParser)}.
+	 * @return Evaluation of the document.
+	 * @throws Exception If the document couldn't be processed.
+	 */
+	private static Evaluation getResult(Future<Evaluation> result) throws Exception {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds the evaluation of a document to the overall evaluation and writes its results.
+	 * 
+	 * @param fileName Name of the document.
+	 * @param documentEval Evaluation of the document.
+	 */
+	private void writeDocumentResult(String fileName, Evaluation documentEval) {
+		eval.merge(documentEval);
+
+		try {
+			writer.writeCorefResults(fileName, documentEval.getTruePositiveList(),
+					documentEval.getFalseNegativeList(), documentEval.getFalsePositiveList());
+		} catch (IOException e) {
+			System.err.println("Couldn't write output file.");
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Entry point for external callers with the possibility to specify FeatureSets and results.
 	 * This method is useful to save runtime, if the MLProcess has to be executed several times. 
@@ -318,22 +476,23 @@ public class MLProcess {
 	public void run(FeatureExtractionProcess fep, MMAXParser gold,
 			Map<String,List<CoreferencePair>> testList) throws Exception {
 		
-		/* gold standard */
-		List<CoreferencePair> goldStandard = gold.getCorefPairs();
+		/* gold standard, stored column by column */
+		PairTable goldStandard = PairTable.fromEntities(gold.getGoldEntities(), gold);
 		
-		/* feature extraction for the attribute structure */
-		fep.extractFeatures(goldStandard, gold);
+		/* feature extraction for the attribute structure and the results */
+		fep.extractFeatures(goldStandard);
 		ic = new InstanceContainer();
 		ic.createAttributeStructure(fep.getFeatureExtractorList());
 		
-		for(List<CoreferencePair> corefPairs : testList.values()) {
-			fep.extractFeatures(corefPairs, gold);
-		}
+		/* pairs predicted by several ACR-Systems are merged and extracted only once */
+		PredictionAggregator aggregator = aggregatePredictions(testList);
+		fep.extractSharedFeatures(testList.values(), gold);
 		
 		/* positive predictions */
-		List<CoreferencePair> predictions = createPrediction(testList);
-		//predictions = removeDuplicates(predictions);
-		doEvaluation(predictions, goldStandard, gold.getDiscourse().getCommonBasedataPath());
+		List<CoreferencePair> predictions = createPrediction(testList, aggregator, ic, null);
+		doEvaluation(predictions, goldStandard, gold.getBasedataPath());
+		eval.getChainEvaluation().evaluate(gold.getGoldEntities(),
+				ChainEvaluation.pairsToEntities(predictions));
 		//this.writer.writeOverallResult(eval);
 	}
 	
@@ -0,0 +1,159 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.mlprocess
+ * class: PredictionAggregator
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.mlprocess;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+
+
+/**
+ * Merges identical {@link CoreferencePair}s predicted by several ACR-Systems.
+ * <br>
+ * <p>Two predictions are identical if their mentions start with the same words, regardless of
+ * which of them is the antecedent. Each distinct pair is kept once (the first prediction), so
+ * identical predictions are found by lookup instead of comparing the predictions to each
+ * other.</p>
+ * <br>
+ * <p>The pairs the classifier accepts are collected by {@link #accept(CoreferencePair)}, again
+ * each distinct pair once.</p>
+ */
+public class PredictionAggregator {
+	/**
+	 * A distinct {@link CoreferencePair} and whether the classifier accepted it.
+	 */
+	private static class Prediction {
+		private final CoreferencePair pair;
+		private boolean accepted;
+		
+		/**
+		 * Creates a record for the first prediction of a pair.
+		 * 
+		 * @param pair The {@link CoreferencePair}.
+		 */
+		Prediction(CoreferencePair pair) {this.pair = pair;}
+	}
+	
+	/**
+	 * Predictions whose words have an ordinal, keyed by the ordered pair of the ordinals.
+	 */
+	private final Map<Long,Prediction> byOrdinal = new HashMap<Long,Prediction>();
+	
+	/**
+	 * Predictions with words unknown to the document, keyed by the ordered pair of the xml ids.
+	 */
+	private final Map<String,Prediction> byId = new HashMap<String,Prediction>();
+	
+	private final List<CoreferencePair> accepted = new ArrayList<CoreferencePair>();
+	
+	/**
+	 * Adds a prediction of an ACR-System.
+	 * 
+	 * @param pair The predicted {@link CoreferencePair}.
+	 */
+	public void add(CoreferencePair pair) {
+		Word antecedent = pair.getAntecedent().getWordList().get(0);
+		Word anaphor = pair.getAnaphor().getWordList().get(0);
+		
+		if (antecedent.getOrdinal() >= 0 && anaphor.getOrdinal() >= 0) {
+			Long key = ordinalKey(antecedent, anaphor);
+			
+			if (! byOrdinal.containsKey(key)) byOrdinal.put(key, new Prediction(pair));
+		}
+		else {
+			String key = idKey(antecedent, anaphor);
+			
+			if (! byId.containsKey(key)) byId.put(key, new Prediction(pair));
+		}
+	}
+	
+	/**
+	 * Returns the record of a pair.
+	 * 
+	 * @param pair A {@link CoreferencePair}.
+	 * @return The record of the pair or <code>null</code> if it hasn't been predicted.
+	 */
+	private Prediction get(CoreferencePair pair) {
+		Word antecedent = pair.getAntecedent().getWordList().get(0);
+		Word anaphor = pair.getAnaphor().getWordList().get(0);
+		
+		if (antecedent.getOrdinal() >= 0 && anaphor.getOrdinal() >= 0) {
+			return byOrdinal.get(ordinalKey(antecedent, anaphor));
+		}
+		return byId.get(idKey(antecedent, anaphor));
+	}
+	
+	/**
+	 * Marks a predicted pair as accepted by the classifier.
+	 * 
+	 * @param pair A {@link CoreferencePair} which has been added before.
+	 * @return <code>true</code> if no identical pair has been accepted before.
+	 * @throws IllegalArgumentException If the pair hasn't been added.
+	 */
+	public boolean accept(CoreferencePair pair) {
+		Prediction prediction = get(pair);
+		
+		if (prediction == null) {
+			throw new IllegalArgumentException("Pair hasn't been predicted: " + pair);
+		}
+		if (prediction.accepted) return false;
+		prediction.accepted = true;
+		accepted.add(pair);
+		return true;
+	}
+	
+	/**
+	 * Returns one {@link CoreferencePair} for each distinct prediction the classifier accepted.
+	 * 
+	 * @return The first accepted {@link CoreferencePair} of each pair.
+	 */
+	public List<CoreferencePair> getAcceptedPairs() {return accepted;}
+	
+	/**
+	 * Packs the ordinals of two words into a key which doesn't depend on their order.
+	 */
+	private static long ordinalKey(Word first, Word second) {
+		long a = Math.min(first.getOrdinal(), second.getOrdinal());
+		long b = Math.max(first.getOrdinal(), second.getOrdinal());
+		
+		return (a << 32) | b;
+	}
+	
+	/**
+	 * Joins the xml ids of two words into a key which doesn't depend on their order.
+	 */
+	private static String idKey(Word first, Word second) {
+		String a = first.getXmlId();
+		String b = second.getXmlId();
+		
+		return a.compareTo(b) <= 0 ? a + " " + b : b + " " + a;
+	}
+}
@@ -31,12 +31,16 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 import de.uniheidelberg.cl.swp.io.Logging;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
 import weka.classifiers.meta.Stacking;
 import weka.core.converters.ArffSaver;
+import weka.core.Drawable;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Utils;
@@ -55,6 +59,12 @@ public class WEKARunner {
 	private Instances train;
 	private Classifier classifier;
 	
+	/**
+	 * Copies of the trained classifier, one for each thread. WEKA classifiers aren't thread-safe,
+	 * so concurrently tested documents are classified by copies instead of sharing a lock.
+	 */
+	private ThreadLocal<Classifier> copies;
+	
 	/* internal WEKA evaluation not used yet */
 	private Evaluation evaluation;
 
@@ -212,6 +222,7 @@ public class WEKARunner {
 				" subclassifiers... this might take some time");
 		stack.setOptions(Utils.splitOptions(sb.toString()));
 		stack.buildClassifier(train);
+		initCopies(stack);
 		
 		return stack;
 	}
@@ -225,6 +236,26 @@ public class WEKARunner {
 	private void buildClassifier(String name, String[] options) throws Exception {
 		classifier = (Classifier)Utils.forName(Classifier.class, name, options);
 		classifier.buildClassifier(train);
+		initCopies(classifier);
+	}
+	
+	/**
+	 * Prepares the copies of a trained classifier, each thread copies it on its first
+	 * classification.
+	 * 
+	 * @param trained The trained classifier.
+	 */
+	private void initCopies(final Classifier trained) {
+		copies = new ThreadLocal<Classifier>() {
+			@Override
+			protected Classifier initialValue() {
+				try {
+					return AbstractClassifier.makeCopy(trained);
+				} catch (Exception e) {
+					throw new IllegalStateException("Couldn't copy the classifier", e);
+				}
+			}
+		};
 	}
 
 	/**
@@ -275,7 +306,7 @@ public class WEKARunner {
 		Instances testcpy = new Instances(unkIns);
 
 		for (int i = 0; i < unkIns.numInstances(); i++) {
-			double clsLabel = classifier.classifyInstance(unkIns.instance(i));
+			double clsLabel = copies.get().classifyInstance(unkIns.instance(i));
 			testcpy.instance(i).setClassValue(clsLabel);
 		}
 		return testcpy;
@@ -285,26 +316,74 @@ public class WEKARunner {
 	 * Classifies a single Instance.
 	 * <br>
 	 * The class attribute, which is a numeral representation (representing the position) of the
-	 * label, must be resolved by the caller.
+	 * label, must be resolved by the caller. Safe to be called concurrently, each thread uses its
+	 * own copy of the classifier.
 	 * 
 	 * @param instance Instance to be classified.
 	 * @return A numeral representation of the class attribute.
 	 * @throws If the Instance couldn't be labeled.
 	 */
 	public double labelUnknownInstance(Instance instance) throws Exception {
-		return classifier.classifyInstance(instance);
+		return copies.get().classifyInstance(instance);
+	}
+
+	/**
+	 * Getter for the Instances the classifier is trained on.
+	 * 
+	 * @return The training Instances.
+	 */
+	public Instances getTrainingInstances() {
+		return train;
+	}
+
+	/**
+	 * Returns the names of the attributes the classifier tests.
+	 * <br>
+	 * Only known for tree classifiers (e.g. J48 or BFTree), whose inner nodes are labeled with
+	 * the tested attributes in the graph of the tree. Attributes which aren't tested can't change
+	 * a classification, so their values don't have to be extracted.
+	 * 
+	 * @return The names of the tested attributes or <code>null</code> if the classifier may use
+	 * 		   every attribute.
+	 */
+	public Set<String> getReferencedAttributes() {
+		if (!(classifier instanceof Drawable) || 
+				((Drawable) classifier).graphType() != Drawable.TREE) {
+			return null;
+		}
+		Set<String> referenced = new HashSet<String>();
+		
+		try {
+			/* nodes: N1 [label="name" ], leaves: N2 [label="+ (3.0)" shape=box style=filled ] */
+			for (String line : ((Drawable) classifier).graph().split("\n")) {
+				int start = line.indexOf("[label=\"");
+				
+				if (start < 0 || line.contains("->") || line.contains("shape=box")) continue;
+				
+				start += "[label=\"".length();
+				String name = line.substring(start, line.indexOf('"', start));
+				
+				if (train.attribute(name) == null) return null;
+				referenced.add(name);
+			}
+		} catch (Exception e) {
+			Logging.getInstance().getLogger().warning("Couldn't read the classifier tree: " + e);
+			return null;
+		}
+		return referenced;
 	}
 
 	/**
 	 * Returns the output possibility of each possible label of an instance.
 	 * <br>
-	 * Not used yet.
+	 * Used by the first stage of a {@link ClassifierCascade}. Safe to be called concurrently, each
+	 * thread uses its own copy of the classifier.
 	 * 
 	 * @param instance Instance for the distribution analysis.
 	 * @return Array of possibilities with values for each attribute.
 	 */
 	public double[] getDistribution(Instance instance) throws Exception {
-		return classifier.distributionForInstance(instance);
+		return copies.get().distributionForInstance(instance);
 	}
 
 	/**
@@ -112,7 +112,7 @@ public class JavaRapPreProcessing {
 
 			System.out.printf("Determining word positions for MMAx words via javarap...");
 
-			String tempFile = mmax.getDiscourse().getWordFileName();
+			String tempFile = mmax.getWordFileName();
 			StringBuffer sbf = Util.read(tempFile);
 			PlainText plain = new PlainText(sbf);
 			
@@ -154,7 +154,8 @@ public class JavaRapPreProcessing {
 		    		// look up the corresponding mmax Word object
 		    		Word matchingMMAxWord = getWordFromString(token, currentPositionInWordList);
 		    			
-		    		currentPositionInWordList = mmax.getWordList().indexOf(matchingMMAxWord);
+		    		currentPositionInWordList =
+		    			mmax.getDocumentText().indexOf(matchingMMAxWord);
 		    		
 		    		
 		    		// set the word position for the MMAx word 
@@ -219,7 +220,7 @@ public class JavaRapPreProcessing {
 
 				try {
 					// path to the base data file
-					File mmaxWordFile = new File(mmax.getDiscourse().getWordFileName());
+					File mmaxWordFile = new File(mmax.getWordFileName());
 					
 					// inputstream to read javarap's console output
 					InputStream stdout;
@@ -292,12 +293,12 @@ public class JavaRapPreProcessing {
 		 * 					 has extracted (using run).
 		 */
 		private void writeOutput(List<CoreferencePair> corefPairs) {
-			String path = this.mmax.getDiscourse().getCommonBasedataPath(); 
+			String path = this.mmax.getBasedataPath(); 
 			File outputPath = new File(path + "/javarap/");
 			
 			if (! outputPath.exists()) outputPath.mkdir();
 			
-			File wordFile = new File(mmax.getDiscourse().getWordFileName());
+			File wordFile = new File(mmax.getWordFileName());
 			
 			
 			try {
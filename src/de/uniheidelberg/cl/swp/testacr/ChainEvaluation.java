@@ -0,0 +1,625 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.testacr
+ * class: ChainEvaluation
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.testacr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.datastructure.Entity;
+import de.uniheidelberg.cl.swp.datastructure.Mention;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+
+/**
+ * Chain-level evaluation of coreference chains against a gold standard.
+ * <br>
+ * Unlike {@link Evaluation} the chains are not split into {@link CoreferencePair}s. The gold
+ * standard (key) and the system output (response) are turned into partitions of their mentions
+ * with a union-find structure, so chains sharing a mention are merged. All metrics are computed
+ * from the overlap counts of key and response chains, which takes time linear in the number of
+ * mentions. CEAF-e additionally solves an assignment problem for each group of chains connected
+ * by overlaps.
+ * <br><br>
+ * Mentions are identified by the ids of their words. Like in {@link Evaluation}, a response
+ * mention which doesn't span exactly the words of a key mention matches a key mention if they
+ * share at least one word (the key mention sharing the most words), so e.g. the single-word
+ * mentions of LingPipe and JavaRap match multi-word gold mentions. The counts are summed up
+ * over all evaluated documents (micro-average).
+ */
+public class ChainEvaluation {
+	/**
+	 * The metrics computed by the chain-level evaluation.
+	 */
+	public enum Metric {
+		/**
+		 * Link-based metric by Vilain et al.: counts the links which are needed to connect the
+		 * partitions a chain is split into by the other side.
+		 */
+		MUC,
+		
+		/**
+		 * Mention-based metric by Bagga and Baldwin: averages the overlap of the chains containing
+		 * a mention over all mentions.
+		 */
+		B3,
+		
+		/**
+		 * Entity-based CEAF by Luo: the similarity of an optimal one-to-one alignment of key and
+		 * response chains.
+		 */
+		CEAFE;
+	}
+	
+	private final double[] recallNumerators = new double[Metric.values().length];
+	private final double[] recallDenominators = new double[Metric.values().length];
+	private final double[] precisionNumerators = new double[Metric.values().length];
+	private final double[] precisionDenominators = new double[Metric.values().length];
+	private int documents = 0;
+	
+	/**
+	 * Evaluates the chains of a document and adds the counts to the overall result.
+	 * 
+	 * @param key Gold standard chains.
+	 * @param response Chains predicted by the system.
+	 */
+	public void evaluate(List<Entity> key, List<Entity> response) {
+		Map<String,Integer> mentionIds = new HashMap<String,Integer>();
+		Map<String,List<Integer>> keyMentions = new HashMap<String,List<Integer>>();
+		List<int[]> keyChains = toMentionIds(key, mentionIds, keyMentions, false);
+		List<int[]> responseChains = toMentionIds(response, mentionIds, keyMentions, true);
+		int mentions = mentionIds.size();
+		
+		int[] keyClusterOf = new int[mentions];
+		int[] responseClusterOf = new int[mentions];
+		int[] keySizes = partition(keyChains, keyClusterOf);
+		int[] responseSizes = partition(responseChains, responseClusterOf);
+		
+		/* number of shared mentions for each pair of overlapping key and response chains */
+		Map<Long,int[]> overlaps = new HashMap<Long,int[]>();
+		
+		for (int m = 0; m < mentions; m++) {
+			if (keyClusterOf[m] < 0 || responseClusterOf[m] < 0) continue;
+			Long edge = ((long) keyClusterOf[m] << 32) | responseClusterOf[m];
+			int[] count = overlaps.get(edge);
+			
+			if (count == null) overlaps.put(edge, new int[] {1});
+			else count[0]++;
+		}
+		
+		/* per chain: mentions shared with the other side and number of overlapping chains */
+		int[] keyShared = new int[keySizes.length];
+		int[] keyPartitions = new int[keySizes.length];
+		int[] responseShared = new int[responseSizes.length];
+		int[] responsePartitions = new int[responseSizes.length];
+		double keyB3 = 0;
+		double responseB3 = 0;
+		
+		for (Map.Entry<Long,int[]> overlap : overlaps.entrySet()) {
+			int k = (int) (overlap.getKey() >>> 32);
+			int r = (int) (overlap.getKey() & 0xffffffffL);
+			int count = overlap.getValue()[0];
+			
+			keyShared[k] += count;
+			keyPartitions[k]++;
+			responseShared[r] += count;
+			responsePartitions[r]++;
+			keyB3 += (double) count * count / keySizes[k];
+			responseB3 += (double) count * count / responseSizes[r];
+		}
+		
+		double ceaf = alignChains(overlaps, keySizes, responseSizes);
+		
+		synchronized (this) {
+			for (int k = 0; k < keySizes.length; k++) {
+				/* mentions missing in the response are partitions of their own */
+				recallNumerators[Metric.MUC.ordinal()] += keyShared[k] - keyPartitions[k];
+				recallDenominators[Metric.MUC.ordinal()] += keySizes[k] - 1;
+				recallDenominators[Metric.B3.ordinal()] += keySizes[k];
+			}
+			for (int r = 0; r < responseSizes.length; r++) {
+				precisionNumerators[Metric.MUC.ordinal()] +=
+					responseShared[r] - responsePartitions[r];
+				precisionDenominators[Metric.MUC.ordinal()] += responseSizes[r] - 1;
+				precisionDenominators[Metric.B3.ordinal()] += responseSizes[r];
+			}
+			recallNumerators[Metric.B3.ordinal()] += keyB3;
+			precisionNumerators[Metric.B3.ordinal()] += responseB3;
+			recallNumerators[Metric.CEAFE.ordinal()] += ceaf;
+			recallDenominators[Metric.CEAFE.ordinal()] += keySizes.length;
+			precisionNumerators[Metric.CEAFE.ordinal()] += ceaf;
+			precisionDenominators[Metric.CEAFE.ordinal()] += responseSizes.length;
+			documents++;
+		}
+	}
+	
+	/**
+	 * Adds the counts of another chain-level evaluation to the counts of this one.
+	 * 
+	 * @param other Evaluation of a single document.
+	 */
+	public synchronized void merge(ChainEvaluation other) {
+		synchronized (other) {
+			for (int i = 0; i < recallNumerators.length; i++) {
+				recallNumerators[i] += other.recallNumerators[i];
+				recallDenominators[i] += other.recallDenominators[i];
+				precisionNumerators[i] += other.precisionNumerators[i];
+				precisionDenominators[i] += other.precisionDenominators[i];
+			}
+			documents += other.documents;
+		}
+	}
+	
+	/**
+	 * Converts a list of {@link CoreferencePair}s into chains.
+	 * <br>
+	 * Each pair becomes a chain of two mentions, pairs sharing a mention are merged during the
+	 * evaluation.
+	 * 
+	 * @param pairs The {@link CoreferencePair}s, e.g. the predictions of a classifier.
+	 * @return One {@link Entity} for each pair.
+	 */
+	public static List<Entity> pairsToEntities(List<CoreferencePair> pairs) {
+		List<Entity> entities = new ArrayList<Entity>(pairs.size());
+		
+		for (int i = 0; i < pairs.size(); i++) {
+			Entity entity = new Entity("pair_" + i);
+			entity.addMention(pairs.get(i).getAntecedent());
+			entity.addMention(pairs.get(i).getAnaphor());
+			entities.add(entity);
+		}
+		return entities;
+	}
+	
+	/**
+	 * Maps the mentions of the chains to dense ids which are shared by key and response.
+	 * <br>
+	 * A response mention without an exact key match is mapped onto the key mention it shares the
+	 * most words with, as long as no other response mention has been mapped onto that key mention.
+	 * Otherwise it gets an id of its own.
+	 * 
+	 * @param entities The chains.
+	 * @param mentionIds Ids of the mentions seen so far, identified by their word ids.
+	 * @param keyMentions Ids of the key mentions containing a word, identified by its id. Filled
+	 * 		  for the key and used to match the mentions of the response.
+	 * @param response <code>True</code> if the chains are the response.
+	 * @return The mention ids of each chain.
+	 */
+	private static List<int[]> toMentionIds(List<Entity> entities,
+			Map<String,Integer> mentionIds, Map<String,List<Integer>> keyMentions,
+			boolean response) {
+		List<int[]> chains = new ArrayList<int[]>(entities.size());
+		StringBuilder mentionKey = new StringBuilder();
+		
+		/* key mentions already taken by a response mention and the response mentions matched by 
+		 * word overlap */
+		BitSet claimed = new BitSet();
+		Map<String,Integer> overlapIds = new HashMap<String,Integer>();
+		
+		if (response) {
+			for (Entity entity : entities) {
+				for (Mention mention : entity.getMentions()) {
+					Integer id = mentionIds.get(toMentionKey(mention, mentionKey));
+					
+					if (id != null) claimed.set(id);
+				}
+			}
+		}
+		
+		for (Entity entity : entities) {
+			int[] chain = new int[entity.getMentions().size()];
+			int size = 0;
+			
+			for (Mention mention : entity.getMentions()) {
+				if (mention.getWordList().isEmpty()) continue;
+				String k = toMentionKey(mention, mentionKey);
+				Integer id = mentionIds.get(k);
+				
+				if (id == null && response) {
+					id = overlapIds.get(k);
+					
+					if (id == null) {
+						id = findOverlappingMention(mention.getWordList(), keyMentions, claimed);
+						
+						if (id != null) {
+							claimed.set(id);
+							overlapIds.put(k, id);
+						}
+					}
+				}
+				if (id == null) {
+					id = mentionIds.size();
+					mentionIds.put(k, id);
+					
+					if (! response) {
+						for (Word word : mention.getWordList()) {
+							List<Integer> ids = keyMentions.get(word.getXmlId());
+							
+							if (ids == null) {
+								ids = new ArrayList<Integer>(2);
+								keyMentions.put(word.getXmlId(), ids);
+							}
+							ids.add(id);
+						}
+					}
+				}
+				chain[size++] = id;
+			}
+			if (size > 0) {
+				chains.add(size == chain.length ? chain : Arrays.copyOf(chain, size));
+			}
+		}
+		return chains;
+	}
+	
+	/**
+	 * Identifies a mention by the ids of its words.
+	 * 
+	 * @param mention The mention.
+	 * @param mentionKey Buffer for building the key.
+	 * @return The word ids of the mention.
+	 */
+	private static String toMentionKey(Mention mention, StringBuilder mentionKey) {
+		mentionKey.setLength(0);
+		
+		for (Word word : mention.getWordList()) {
+			mentionKey.append(word.getXmlId()).append(' ');
+		}
+		return mentionKey.toString();
+	}
+	
+	/**
+	 * Finds the key mention which shares the most words with a response mention.
+	 * 
+	 * @param words The words of the response mention.
+	 * @param keyMentions Ids of the key mentions containing a word.
+	 * @param claimed Key mentions which have already been matched and are skipped.
+	 * @return Id of the key mention (the smallest id on ties) or <code>null</code> if no unmatched
+	 * 		   key mention shares a word with the response mention.
+	 */
+	private static Integer findOverlappingMention(List<Word> words,
+			Map<String,List<Integer>> keyMentions, BitSet claimed) {
+		Map<Integer,Integer> shared = new HashMap<Integer,Integer>();
+		Integer best = null;
+		
+		for (Word word : words) {
+			List<Integer> ids = keyMentions.get(word.getXmlId());
+			
+			if (ids == null) continue;
+			
+			for (Integer id : ids) {
+				if (claimed.get(id)) continue;
+				Integer count = shared.get(id);
+				shared.put(id, count == null ? 1 : count + 1);
+			}
+		}
+		for (Map.Entry<Integer,Integer> entry : shared.entrySet()) {
+			int count = entry.getValue();
+			
+			if (best == null || count > shared.get(best) ||
+					(count == shared.get(best) && entry.getKey() < best)) {
+				best = entry.getKey();
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Merges the chains into disjoint clusters.
+	 * 
+	 * @param chains The mention ids of each chain.
+	 * @param clusterOf Is filled with the cluster of each mention, -1 for mentions which don't
+	 * 		  occur in the chains.
+	 * @return Number of mentions of each cluster.
+	 */
+	private static int[] partition(List<int[]> chains, int[] clusterOf) {
+		UnionFind unionFind = new UnionFind(clusterOf.length);
+		boolean[] contained = new boolean[clusterOf.length];
+		
+		for (int[] chain : chains) {
+			for (int mention : chain) {
+				contained[mention] = true;
+				unionFind.union(chain[0], mention);
+			}
+		}
+		
+		int[] clusterOfRoot = new int[clusterOf.length];
+		Arrays.fill(clusterOfRoot, -1);
+		int clusters = 0;
+		int[] sizes = new int[clusterOf.length];
+		
+		for (int m = 0; m < clusterOf.length; m++) {
+			if (! contained[m]) {
+				clusterOf[m] = -1;
+				continue;
+			}
+			int root = unionFind.find(m);
+			
+			if (clusterOfRoot[root] < 0) clusterOfRoot[root] = clusters++;
+			clusterOf[m] = clusterOfRoot[root];
+			sizes[clusterOf[m]]++;
+		}
+		return Arrays.copyOf(sizes, clusters);
+	}
+	
+	/**
+	 * Computes the similarity of the optimal one-to-one alignment of key and response chains
+	 * using phi4, i.e. 2 * |K &cap; R| / (|K| + |R|).
+	 * <br>
+	 * Only overlapping chains have a similarity greater than zero, so the alignment is solved
+	 * separately for each connected group of overlapping chains.
+	 * 
+	 * @param overlaps Number of shared mentions of each pair of overlapping chains.
+	 * @param keySizes Sizes of the key chains.
+	 * @param responseSizes Sizes of the response chains.
+	 * @return The summed up similarity of the aligned chains.
+	 */
+	private static double alignChains(Map<Long,int[]> overlaps, int[] keySizes,
+			int[] responseSizes) {
+		/* key chains are nodes 0..k-1, response chains k..k+r-1 */
+		UnionFind components = new UnionFind(keySizes.length + responseSizes.length);
+		
+		for (Long edge : overlaps.keySet()) {
+			components.union((int) (edge >>> 32),
+					keySizes.length + (int) (edge & 0xffffffffL));
+		}
+		
+		/* position of each chain within the similarity matrix of its component */
+		int[] position = new int[keySizes.length + responseSizes.length];
+		Map<Integer,int[]> componentSizes = new HashMap<Integer,int[]>();
+		
+		for (int node = 0; node < position.length; node++) {
+			int root = components.find(node);
+			int[] size = componentSizes.get(root);
+			
+			if (size == null) {
+				size = new int[2];
+				componentSizes.put(root, size);
+			}
+			position[node] = node < keySizes.length ? size[0]++ : size[1]++;
+		}
+		
+		Map<Integer,double[][]> similarities = new HashMap<Integer,double[][]>();
+		
+		for (Map.Entry<Long,int[]> overlap : overlaps.entrySet()) {
+			int k = (int) (overlap.getKey() >>> 32);
+			int r = (int) (overlap.getKey() & 0xffffffffL);
+			int root = components.find(k);
+			double[][] matrix = similarities.get(root);
+			
+			if (matrix == null) {
+				int[] size = componentSizes.get(root);
+				matrix = new double[size[0]][size[1]];
+				similarities.put(root, matrix);
+			}
+			matrix[position[k]][position[keySizes.length + r]] =
+				2.0 * overlap.getValue()[0] / (keySizes[k] + responseSizes[r]);
+		}
+		
+		double similarity = 0;
+		
+		for (double[][] matrix : similarities.values()) {
+			similarity += maxAssignment(matrix);
+		}
+		return similarity;
+	}
+	
+	/**
+	 * Solves the assignment problem for a similarity matrix with the Hungarian method
+	 * (O(n&sup2;m) for n rows and m columns).
+	 * 
+	 * @param similarity Similarities of the rows and columns.
+	 * @return Maximal sum of similarities of a one-to-one assignment.
+	 */
+	private static double maxAssignment(double[][] similarity) {
+		int rows = similarity.length;
+		int columns = similarity[0].length;
+		boolean transposed = rows > columns;
+		int n = transposed ? columns : rows;
+		int m = transposed ? rows : columns;
+		
+		/* potentials and matching, 1-based with column 0 as virtual start */
+		double[] u = new double[n + 1];
+		double[] v = new double[m + 1];
+		int[] matchOfColumn = new int[m + 1];
+		int[] way = new int[m + 1];
+		
+		for (int i = 1; i <= n; i++) {
+			matchOfColumn[0] = i;
+			int column = 0;
+			double[] minCost = new double[m + 1];
+			boolean[] used = new boolean[m + 1];
+			Arrays.fill(minCost, Double.POSITIVE_INFINITY);
+			
+			do {
+				used[column] = true;
+				int row = matchOfColumn[column];
+				double delta = Double.POSITIVE_INFINITY;
+				int next = 0;
+				
+				for (int j = 1; j <= m; j++) {
+					if (used[j]) continue;
+					/* maximizing the similarity = minimizing its negation */
+					double cost = -(transposed ? similarity[j - 1][row - 1] :
+						similarity[row - 1][j - 1]) - u[row] - v[j];
+					
+					if (cost < minCost[j]) {
+						minCost[j] = cost;
+						way[j] = column;
+					}
+					if (minCost[j] < delta) {
+						delta = minCost[j];
+						next = j;
+					}
+				}
+				for (int j = 0; j <= m; j++) {
+					if (used[j]) {
+						u[matchOfColumn[j]] += delta;
+						v[j] -= delta;
+					}
+					else {
+						minCost[j] -= delta;
+					}
+				}
+				column = next;
+			} while (matchOfColumn[column] != 0);
+			
+			do {
+				int previous = way[column];
+				matchOfColumn[column] = matchOfColumn[previous];
+				column = previous;
+			} while (column != 0);
+		}
+		
+		double sum = 0;
+		
+		for (int j = 1; j <= m; j++) {
+			if (matchOfColumn[j] == 0) continue;
+			int row = matchOfColumn[j];
+			sum += transposed ? similarity[j - 1][row - 1] : similarity[row - 1][j - 1];
+		}
+		return sum;
+	}
+	
+	/**
+	 * Getter for the recall of a metric.
+	 * 
+	 * @param metric The metric.
+	 * @return Recall over all evaluated documents.
+	 */
+	public synchronized double getRecall(Metric metric) {
+		return ratio(recallNumerators[metric.ordinal()], recallDenominators[metric.ordinal()]);
+	}
+	
+	/**
+	 * Getter for the precision of a metric.
+	 * 
+	 * @param metric The metric.
+	 * @return Precision over all evaluated documents.
+	 */
+	public synchronized double getPrecision(Metric metric) {
+		return ratio(precisionNumerators[metric.ordinal()],
+				precisionDenominators[metric.ordinal()]);
+	}
+	
+	/**
+	 * Getter for the F-Score of a metric.
+	 * 
+	 * @param metric The metric.
+	 * @return Harmonic mean of precision and recall over all evaluated documents.
+	 */
+	public synchronized double getFScore(Metric metric) {
+		double precision = getPrecision(metric);
+		double recall = getRecall(metric);
+		
+		return ratio(2 * precision * recall, precision + recall);
+	}
+	
+	/**
+	 * Getter for the average F-Score of all metrics (the CoNLL score if all three metrics are
+	 * computed).
+	 * 
+	 * @return Unweighted mean of the F-Scores of MUC, B&sup3; and CEAF-e.
+	 */
+	public synchronized double getAverageFScore() {
+		double sum = 0;
+		
+		for (Metric metric : Metric.values()) {
+			sum += getFScore(metric);
+		}
+		return sum / Metric.values().length;
+	}
+	
+	/**
+	 * Getter for the number of evaluated documents.
+	 * 
+	 * @return Number of documents.
+	 */
+	public synchronized int getDocumentCount() {return documents;}
+	
+	/**
+	 * Divides two counts, returning 0 for an empty denominator.
+	 */
+	private static double ratio(double numerator, double denominator) {
+		return denominator == 0 ? 0 : numerator / denominator;
+	}
+	
+	/**
+	 * Union-find structure over dense ids with path halving and union by size.
+	 */
+	private static class UnionFind {
+		private final int[] parent;
+		private final int[] size;
+		
+		/**
+		 * Creates a structure where every id is in a set of its own.
+		 * 
+		 * @param n Number of ids.
+		 */
+		UnionFind(int n) {
+			parent = new int[n];
+			size = new int[n];
+			
+			for (int i = 0; i < n; i++) {
+				parent[i] = i;
+				size[i] = 1;
+			}
+		}
+		
+		/**
+		 * Returns the representative of the set containing an id.
+		 */
+		int find(int x) {
+			while (parent[x] != x) {
+				parent[x] = parent[parent[x]];
+				x = parent[x];
+			}
+			return x;
+		}
+		
+		/**
+		 * Merges the sets containing the two ids.
+		 */
+		void union(int a, int b) {
+			a = find(a);
+			b = find(b);
+			
+			if (a == b) return;
+			if (size[a] < size[b]) {
+				int tmp = a;
+				a = b;
+				b = tmp;
+			}
+			parent[b] = a;
+			size[a] += size[b];
+		}
+	}
+}
@@ -28,10 +28,15 @@
 package de.uniheidelberg.cl.swp.testacr;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
-import de.uniheidelberg.cl.swp.datastructure.Mention;
+import de.uniheidelberg.cl.swp.datastructure.PairTable;
 import de.uniheidelberg.cl.swp.datastructure.Word;
 import de.uniheidelberg.cl.swp.featureExtraction.FeatureMatchChecker;
 import de.uniheidelberg.cl.swp.io.Configuration;
@@ -83,8 +88,20 @@ public class Evaluation {
 	 */
 	private List<CoreferencePair> falsePositiveList;
 	
+	/**
+	 * The result lists as {@link PairTable}s, if the evaluated pairs were {@link PairTable}s.
+	 */
+	private PairTable truePositiveTable;
+	private PairTable falseNegativeTable;
+	private PairTable falsePositiveTable;
+	
 	private Mode evaluationMode;
 	
+	/**
+	 * Chain-level evaluation of the same documents.
+	 */
+	private ChainEvaluation chainEvaluation;
+	
 	/**
 	 * Specifies the evaluation mode to be used.
 	 *
@@ -125,6 +142,7 @@ public class Evaluation {
 		this.truePositiveList = new ArrayList<CoreferencePair>();
 		this.falsePositiveList = new ArrayList<CoreferencePair>();
 		this.evaluationMode = mode;
+		this.chainEvaluation = new ChainEvaluation();
 	}
 	
 	
@@ -139,22 +157,71 @@ public class Evaluation {
 	 */
 	public double evaluateCorefPairs(List<CoreferencePair> acrCorefPairs,
 			List<CoreferencePair> goldCorefPairs) {
+		return evaluate(Pairs.of(acrCorefPairs), Pairs.of(goldCorefPairs));
+	}
+	
+	/**
+	 * Evaluate the pairs of a {@link PairTable} in respect to the {@link PairTable} of the gold
+	 * standard. Computes both the precision and the recall.
+	 * <br>
+	 * {@link CoreferencePair} objects are only created for the pairs in the result lists.
+	 * 
+	 * @param acrPairs Predictions by the ACR system being evaluated.
+	 * @param goldPairs Gold standard = correct pairs.
+	 * @return Recall of the system, (correctly classified / CoreferencePairs in goldStandard)
+	 */
+	public double evaluateCorefPairs(PairTable acrPairs, PairTable goldPairs) {
+		return evaluate(Pairs.of(acrPairs), Pairs.of(goldPairs));
+	}
+	
+	/**
+	 * Evaluate a list of {@link CoreferencePair}s in respect to the {@link PairTable} of the gold
+	 * standard. Computes both the precision and the recall.
+	 * 
+	 * @param acrCorefPairs Predictions by the ACR system being evaluated.
+	 * @param goldPairs Gold standard = correct pairs.
+	 * @return Recall of the system, (correctly classified / CoreferencePairs in goldStandard)
+	 */
+	public double evaluateCorefPairs(List<CoreferencePair> acrCorefPairs, PairTable goldPairs) {
+		return evaluate(Pairs.of(acrCorefPairs), Pairs.of(goldPairs));
+	}
+	
+	/**
+	 * Evaluates the predictions against the gold standard.
+	 * 
+	 * @param acrCorefPairs Predictions by the ACR system being evaluated.
+	 * @param goldCorefPairs Gold standard = correct pairs.
+	 * @return Recall of the system.
+	 */
+	private double evaluate(Pairs acrCorefPairs, Pairs goldCorefPairs) {
 		Logging.getInstance().getLogger().entering(null, null);
 		Logging.getInstance().getLogger().info(" \t\t [*** Evaluation process ***]");
 
-		// for each file: delete the lists containing the results
-		truePositiveList.clear();
-		falseNegativeList.clear();
-		falsePositiveList.clear();
+		// for each file: new result lists
+		Rows truePositiveRows = new Rows();
+		Rows falseNegativeRows = new Rows();
+		Rows falsePositiveRows = new Rows();
 		
-		computeFalsePositives(goldCorefPairs, acrCorefPairs);
+		computeFalsePositives(goldCorefPairs, acrCorefPairs, falsePositiveRows);
 		
-		double currentRecall = computeRecall(goldCorefPairs, acrCorefPairs);
-		double currentPrecision = truePositives / (falsePositiveList.size() + 
-													truePositiveList.size());
+		double currentRecall = computeRecall(goldCorefPairs, acrCorefPairs, truePositiveRows,
+				falseNegativeRows);
+		double currentPrecision = truePositives / (falsePositiveRows.size + 
+													truePositiveRows.size);
+		
+		/* the pairs of a table are only created when the result lists are read */
+		truePositiveTable = truePositiveRows.select(goldCorefPairs.getTable());
+		falseNegativeTable = falseNegativeRows.select(goldCorefPairs.getTable());
+		falsePositiveTable = falsePositiveRows.select(acrCorefPairs.getTable());
+		truePositiveList = truePositiveTable != null ? truePositiveTable.asList() :
+			truePositiveRows.select(goldCorefPairs);
+		falseNegativeList = falseNegativeTable != null ? falseNegativeTable.asList() :
+			falseNegativeRows.select(goldCorefPairs);
+		falsePositiveList = falsePositiveTable != null ? falsePositiveTable.asList() :
+			falsePositiveRows.select(acrCorefPairs);
 		
 		Logging.getInstance().getLogger().info(" \t\t [*** Evaluation result: " + 
-														truePositiveList.size() + 
+														truePositiveRows.size + 
 														" true positives ***]");
 		
 		Logging.getInstance().getLogger().info(" \t\t [*** Recall for this file: " + 
@@ -184,6 +251,20 @@ public class Evaluation {
 		return this.evaluateCorefPairs(acrCorefPairs, goldCorefPairs);
 	}
 	
+	/**
+	 * Evaluate the pairs of a {@link PairTable} in respect to the {@link PairTable} of the gold
+	 * standard, filtering out pairs which do not match the required feature values.
+	 * 
+	 * @param acrPairs Predictions by the ACR system being evaluated, with extracted features.
+	 * @param goldPairs Gold standard = correct pairs, with extracted features.
+	 * @return Recall of the system, (correctly classified / CoreferencePairs in goldStandard)
+	 */
+	public double evaluateFeatureDep(PairTable acrPairs, PairTable goldPairs) {
+		FeatureMatchChecker fmc = new FeatureMatchChecker();
+		return this.evaluateCorefPairs(fmc.filterNonMatchingFeatures(acrPairs),
+				fmc.filterNonMatchingFeatures(goldPairs));
+	}
+	
 	
 	/**
 	 * Computes the recall for the current system.
@@ -192,39 +273,41 @@ public class Evaluation {
 	 * 
 	 * @param goldCorefPairs
 	 * @param hypothesis
+	 * @param truePositiveRows Receives the recognized gold pairs.
+	 * @param falseNegativeRows Receives the gold pairs which haven't been recognized.
 	 * @return The recall for the current acr-system according and mmax-file.
 	 */
-	private double computeRecall(List<CoreferencePair> goldCorefPairs,
-			List<CoreferencePair> hypothesis) {
+	private double computeRecall(Pairs goldCorefPairs, Pairs hypothesis, Rows truePositiveRows,
+			Rows falseNegativeRows) {
 		
 
 		// the number of correctly recognized pairs for the current file
 		float currentPoints = 0F;
 		
 		
-		goldStandard:
+		PairIndex hypothesisIndex = new PairIndex(hypothesis, false);
+		
 		// try to find a corresponding corefPair for each pair out of the gold standard
-		for (CoreferencePair corefPair : goldCorefPairs) {
+		for (int i = 0; i < goldCorefPairs.size(); i++) {
 			
 			if (this.evaluationMode == Mode.DIRECTNEIGBORSONLY &&
-					corefPair.isDirectNeighbor() == false)
+					goldCorefPairs.isDirectNeighbor(i) == false)
 				continue;
 			
+			int hypoPair = hypothesisIndex.findFirstMatch(goldCorefPairs.getAnaphorWords(i),
+					goldCorefPairs.getAntecedentWords(i));
 			
-			for (CoreferencePair hypoPair : hypothesis) {
-				
-				if (isCorrectPair(corefPair, hypoPair)) {
-					currentPoints += 1.0;
-					corefPair.setAcrSystem(hypoPair.getAcrSystem());
-					truePositiveList.add(corefPair);
-					continue goldStandard;
-				}
-				
-			}	falseNegativeList.add(corefPair);	
+			if (hypoPair >= 0) {
+				currentPoints += 1.0;
+				truePositiveRows.add(i, hypothesis.getAcrSystem(hypoPair));
+			}
+			else {
+				falseNegativeRows.add(i, goldCorefPairs.getAcrSystem(i));
+			}
 		}
 		
-		this.truePositives += truePositiveList.size();
-		this.falseNegatives += falseNegativeList.size();
+		this.truePositives += truePositiveRows.size;
+		this.falseNegatives += falseNegativeRows.size;
 		
 		return currentPoints/goldCorefPairs.size();
 	}
@@ -237,29 +320,30 @@ public class Evaluation {
 	 * 
 	 * @param goldCorefPairs
 	 * @param hypothesis
+	 * @param falsePositiveRows Receives the predictions which aren't in the gold standard.
 	 * @return The recall for the current acr-system according and mmax-file.
 	 */
-	private double computeFalsePositives(List<CoreferencePair> goldCorefPairs, 
-										 List<CoreferencePair> hypothesis) {
+	private double computeFalsePositives(Pairs goldCorefPairs, Pairs hypothesis,
+			Rows falsePositiveRows) {
 		/* Idea: iterate over acr hypothesis and try to find a corresponding 
 		 * pair the gold standard. If there is none  -> false positive. 
 		 */
-		hypothesisLoop:
-		for (CoreferencePair hypoPair : hypothesis) {
+		PairIndex goldIndex = new PairIndex(goldCorefPairs, true);
+		
+		for (int i = 0; i < hypothesis.size(); i++) {
 						
 			if (this.evaluationMode == Mode.DIRECTNEIGBORSONLY &&
-					hypoPair.isDirectNeighbor() == false) {
+					hypothesis.isDirectNeighbor(i) == false) {
 				continue;
 			}
 
-			for (CoreferencePair goldPair : goldCorefPairs) {
-				
-				if (isCorrectPair(goldPair, hypoPair)) continue hypothesisLoop;
-				
-			}	falsePositiveList.add(hypoPair);	
+			if (goldIndex.findFirstMatch(hypothesis.getAnaphorWords(i),
+					hypothesis.getAntecedentWords(i)) < 0) {
+				falsePositiveRows.add(i, hypothesis.getAcrSystem(i));
+			}
 		}
 		
-		this.falsePositives += falsePositiveList.size();
+		this.falsePositives += falsePositiveRows.size;
 
 		return falsePositives;
 	}
@@ -276,11 +360,10 @@ public class Evaluation {
 	 */
 	public static boolean findCorrespondingCorefPair(CoreferencePair prediciton, 
 													 List<CoreferencePair> goldStandard) {
-		for (CoreferencePair goldPair : goldStandard) {
-			
-			if (isCorrectPair(goldPair, prediciton)) return true;
-			
-		} return false;	
+		PairIndex goldIndex = new PairIndex(Pairs.of(goldStandard), true);
+		
+		return goldIndex.findFirstMatch(prediciton.getAnaphor().getWordList(),
+				prediciton.getAntecedent().getWordList()) >= 0;
 	}
 
 	
@@ -288,67 +371,261 @@ public class Evaluation {
 	
 	
 	/**
-	 * Checks whether the two coreference pairs denote the same mention.
-	 * @param corefPairGold The gold standard coreference pair.
-	 * @param corefPairHypo The output from the acr system.
-	 * @return <code>True</code> if the coref pairs point refer to the same mention 
-	 * 		   (=correct result), <code>false</code> otherwise.
+	 * Index from word IDs to the {@link CoreferencePair}s whose mentions contain the word.
+	 * <br>
+	 * Two mentions match if they share at least one word. A gold pair matches a predicted pair if
+	 * the anaphors and the antecedents match or, if the anaphors don't match, the antecedent of
+	 * the gold pair matches the predicted anaphor and vice versa. The index resolves these
+	 * matches by lookup instead of comparing every pair of the gold standard to every pair of the
+	 * hypothesis. Words are identified by their ordinal and by their xml id only if they have no
+	 * ordinal, which corresponds to {@link Word#hasSameId(Word)} for the words of a single
+	 * document.
 	 */
-	private static boolean isCorrectPair(CoreferencePair corefPairGold,
-			CoreferencePair corefPairHypo) {
-		if (! isCorrectMention(corefPairGold.getAnaphor(), corefPairHypo.getAnaphor(),0)) {
-			
-			if (! isCorrectMention(corefPairGold.getAntecedent(), corefPairHypo.getAnaphor(),0))
-				return false;
+	private static class PairIndex {
+		private final boolean goldStandard;
+		private final Map<Object,List<Integer>> anaphors = new HashMap<Object,List<Integer>>();
+		private final Map<Object,List<Integer>> antecedents =
+			new HashMap<Object,List<Integer>>();
+		
+		/**
+		 * Indexes the mentions of a list of pairs.
+		 * 
+		 * @param pairs The pairs to be indexed.
+		 * @param goldStandard <code>True</code> if the pairs are the gold standard,
+		 * 		  <code>false</code> if they are predictions.
+		 */
+		PairIndex(Pairs pairs, boolean goldStandard) {
+			this.goldStandard = goldStandard;
 			
-			else {
+			for (int i = 0; i < pairs.size(); i++) {
+				add(anaphors, pairs.getAnaphorWords(i), i);
+				add(antecedents, pairs.getAntecedentWords(i), i);
+			}
+		}
+		
+		/**
+		 * Returns the key of a word in the index.
+		 * 
+		 * @param word The word.
+		 * @return The ordinal of the word or its xml id if it has no ordinal.
+		 */
+		private static Object key(Word word) {
+			return word.getOrdinal() >= 0 ? Integer.valueOf(word.getOrdinal()) : word.getXmlId();
+		}
+		
+		/**
+		 * Adds the position of a pair for every word of one of its mentions.
+		 * 
+		 * @param index Index of the anaphors or the antecedents.
+		 * @param mention The words of the mention to be indexed.
+		 * @param position Position of the pair in the indexed list.
+		 */
+		private static void add(Map<Object,List<Integer>> index, List<Word> mention,
+				int position) {
+			for (Word word : mention) {
+				Object key = key(word);
+				List<Integer> positions = index.get(key);
 				
-				if (isCorrectMention(corefPairGold.getAnaphor(), corefPairHypo.getAntecedent(),0))
-					return true;
+				if (positions == null) {
+					positions = new ArrayList<Integer>(2);
+					index.put(key, positions);
+				}
+				/* a word may occur more than once in a mention */
+				if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+					positions.add(position);
+				}
 			}
+		}
+		
+		/**
+		 * Collects the positions of the pairs which have a mention sharing a word with the given
+		 * mention.
+		 * 
+		 * @param index Index of the anaphors or the antecedents.
+		 * @param mention The words of the mention to be looked up.
+		 * @return Positions of the matching pairs.
+		 */
+		private static Set<Integer> lookup(Map<Object,List<Integer>> index, List<Word> mention) {
+			Set<Integer> positions = new HashSet<Integer>();
+			
+			for (Word word : mention) {
+				List<Integer> matches = index.get(key(word));
 				
-		} else {
+				if (matches != null) positions.addAll(matches);
+			}
+			return positions;
+		}
+		
+		/**
+		 * Returns the smallest position which occurs in both sets but not in the excluded set.
+		 * 
+		 * @param excluded Positions to be skipped, may be <code>null</code>.
+		 * @return The smallest common position or {@link Integer#MAX_VALUE} if there is none.
+		 */
+		private static int firstCommon(Set<Integer> first, Set<Integer> second,
+				Set<Integer> excluded) {
+			int min = Integer.MAX_VALUE;
 			
-			if (isCorrectMention(corefPairGold.getAntecedent(), corefPairHypo.getAntecedent(),0))
-				return true;
+			if (first.size() > second.size()) {
+				Set<Integer> tmp = first;
+				first = second;
+				second = tmp;
+			}
+			for (int position : first) {
+				if (position < min && second.contains(position) &&
+						(excluded == null || ! excluded.contains(position))) {
+					min = position;
+				}
+			}
+			return min;
 		}
 		
-		return false;
+		/**
+		 * Finds the first indexed pair which matches the given pair.
+		 * 
+		 * @param anaphor Words of the anaphor of the given pair.
+		 * @param antecedent Words of the antecedent of the given pair.
+		 * @return Position of the first matching pair of the indexed list or -1 if there is
+		 * 		   none. The given pair is a prediction if the index contains the gold standard, a
+		 * 		   gold pair otherwise.
+		 */
+		int findFirstMatch(List<Word> anaphor, List<Word> antecedent) {
+			/* indexed pairs whose anaphor matches the anaphor of the given pair */
+			Set<Integer> anaphorMatches = lookup(anaphors, anaphor);
+			
+			/* indexed pairs where the gold antecedent matches the predicted anaphor */
+			Set<Integer> crossedAnaphorMatches = goldStandard ?
+					lookup(antecedents, anaphor) :
+					lookup(anaphors, antecedent);
+			int first = Integer.MAX_VALUE;
+			
+			if (! anaphorMatches.isEmpty()) {
+				first = firstCommon(anaphorMatches, lookup(antecedents, antecedent), null);
+			}
+			if (! crossedAnaphorMatches.isEmpty()) {
+				Set<Integer> crossedAntecedentMatches = goldStandard ?
+						lookup(anaphors, antecedent) :
+						lookup(antecedents, anaphor);
+				
+				first = Math.min(first, firstCommon(crossedAnaphorMatches,
+						crossedAntecedentMatches, anaphorMatches));
+			}
+			return first == Integer.MAX_VALUE ? -1 : first;
+		}
 	}
 	
 	/**
-	 * This method checks whether two mentions match by iteration over all the words of one
-	 * mention.
-	 * 
-	 * @param mention1 The mention which has been predicted.
-	 * @param mention2 The mention extracted from Gold Standard.
-	 * @param wordPosition The word position of the first word.
-	 * @return <code>True</code> if the mentions match, <code>false</code> otherwise.
-	 */
-	private static boolean isCorrectMention(Mention mention1, Mention mention2,
-			int wordPosition) {
-		if ( wordPosition > (mention2.getWordList().size() -1)) return false;
+	 * Uniform access to the pairs of a list of {@link CoreferencePair}s or a {@link PairTable}.
+	 */
+	private static abstract class Pairs {
+		abstract int size();
+		abstract List<Word> getAnaphorWords(int i);
+		abstract List<Word> getAntecedentWords(int i);
+		abstract boolean isDirectNeighbor(int i);
+		abstract String getAcrSystem(int i);
 		
-		Word word1  = mention2.getWordList().get(wordPosition); 
+		/**
+		 * Returns the pair as {@link CoreferencePair}, which is created for a {@link PairTable}.
+		 */
+		abstract CoreferencePair getPair(int i);
 		
-		for (Word word2 : mention1.getWordList()) {
-			
-			if (wordIdMatch(word1, word2)) return true;
+		/**
+		 * Returns the {@link PairTable} of the pairs.
+		 * 
+		 * @return The table or <code>null</code> for a list of {@link CoreferencePair}s.
+		 */
+		PairTable getTable() {return null;}
+		
+		static Pairs of(final List<CoreferencePair> pairs) {
+			return new Pairs() {
+				int size() {return pairs.size();}
+				List<Word> getAnaphorWords(int i) {return pairs.get(i).getAnaphor().getWordList();}
+				List<Word> getAntecedentWords(int i) {
+					return pairs.get(i).getAntecedent().getWordList();
+				}
+				boolean isDirectNeighbor(int i) {return pairs.get(i).isDirectNeighbor();}
+				String getAcrSystem(int i) {return pairs.get(i).getAcrSystem();}
+				CoreferencePair getPair(int i) {return pairs.get(i);}
+			};
 		}
 		
-		return isCorrectMention(mention1, mention2, wordPosition + 1);
+		static Pairs of(final PairTable table) {
+			return new Pairs() {
+				int size() {return table.size();}
+				List<Word> getAnaphorWords(int i) {return table.getAnaphorWords(i);}
+				List<Word> getAntecedentWords(int i) {return table.getAntecedentWords(i);}
+				boolean isDirectNeighbor(int i) {return table.isDirectNeighbor(i);}
+				String getAcrSystem(int i) {return table.getAcrSystem(i);}
+				CoreferencePair getPair(int i) {return table.getPair(i);}
+				PairTable getTable() {return table;}
+			};
+		}
 	}
 	
 	/**
-	 * Checks, whether two word IDs denote the same {@link Word}.
-	 * @param goldWord The first word to compare. 
-	 * @param hypoWord The second word to compare.
-	 * @return <code>True</code> if the Words match, <code>false</code> otherwise.
+	 * The positions of the evaluated pairs which belong to a result list, together with the
+	 * ACR-System of each pair.
 	 */
-	private static boolean wordIdMatch(Word goldWord, Word hypoWord) {
-		return (goldWord.getXmlId().equals(hypoWord.getXmlId()));
+	private static class Rows {
+		private int[] rows = new int[16];
+		private String[] acrSystems = new String[16];
+		private int size = 0;
+		
+		void add(int row, String acrSystem) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, 2 * size);
+				acrSystems = Arrays.copyOf(acrSystems, 2 * size);
+			}
+			rows[size] = row;
+			acrSystems[size++] = acrSystem;
+		}
+		
+		/**
+		 * Returns the {@link CoreferencePair}s of the rows, which are assigned their ACR-System.
+		 */
+		List<CoreferencePair> select(Pairs pairs) {
+			List<CoreferencePair> selected = new ArrayList<CoreferencePair>(size);
+			
+			for (int i = 0; i < size; i++) {
+				CoreferencePair corefPair = pairs.getPair(rows[i]);
+				corefPair.setAcrSystem(acrSystems[i]);
+				selected.add(corefPair);
+			}
+			return selected;
+		}
+		
+		/**
+		 * Returns a table of the rows, <code>null</code> if there is no table.
+		 */
+		PairTable select(PairTable table) {
+			return table == null ? null : table.select(rows, acrSystems, size);
+		}
+	}
+
+	/**
+	 * Adds the counts of another evaluation to the counts of this one.
+	 * <br>
+	 * Used to combine the evaluations of documents which have been processed concurrently. The
+	 * result lists of the other evaluation are not copied.
+	 * 
+	 * @param other Evaluation of a single document.
+	 */
+	public synchronized void merge(Evaluation other) {
+		synchronized (other) {
+			truePositives += other.truePositives;
+			falseNegatives += other.falseNegatives;
+			falsePositives += other.falsePositives;
+		}
+		chainEvaluation.merge(other.chainEvaluation);
 	}
-	
+
+	/**
+	 * Getter for the chain-level evaluation, which scores the coreference chains of the
+	 * evaluated documents with MUC, B&sup3; and CEAF-e.
+	 * 
+	 * @return The {@link ChainEvaluation}.
+	 */
+	public ChainEvaluation getChainEvaluation() {return chainEvaluation;}
 
 	/**
 	 * Getter for the list of false negatives.
@@ -371,6 +648,30 @@ public class Evaluation {
 	 */
 	public List<CoreferencePair> getFalsePositiveList() {return falsePositiveList;}
 	
+	/**
+	 * Getter for the table of false negatives.
+	 * 
+	 * @return The false negatives or <code>null</code> if the gold standard wasn't a
+	 * 		   {@link PairTable}.
+	 */
+	public PairTable getFalseNegativeTable() {return falseNegativeTable;}
+	
+	/**
+	 * Getter for the table of true positives, each pair with the ACR-System which predicted it.
+	 * 
+	 * @return The true positives or <code>null</code> if the gold standard wasn't a
+	 * 		   {@link PairTable}.
+	 */
+	public PairTable getTruePositiveTable() {return truePositiveTable;}
+	
+	/**
+	 * Getter for the table of false positives.
+	 * 
+	 * @return The false positives or <code>null</code> if the predictions weren't a
+	 * 		   {@link PairTable}.
+	 */
+	public PairTable getFalsePositiveTable() {return falsePositiveTable;}
+	
 	/**
 	 * Getter for the list of false negatives.
 	 * 
@@ -84,9 +84,9 @@ public class JavaRapRunner extends Runner {
 	 */
 	public void run() throws Exception {
 		this.coreferents.clear();
-		String path = this.mmax.getDiscourse().getCommonBasedataPath(); 
+		String path = this.mmax.getBasedataPath(); 
 		File jrPath = new File(path + "/javarap/");
-		File wordFile = new File(mmax.getDiscourse().getWordFileName());
+		File wordFile = new File(mmax.getWordFileName());
 		
 		try {
 			Reader r = new FileReader(new File(jrPath.getCanonicalPath() + "/" +
@@ -102,11 +102,11 @@ public class JavaRapRunner extends Runner {
 				
 				Entity en = new Entity("null");
 				Mention m1 = new Mention();
-				m1.addWord(new Word("",0,0,line.split("~")[0]));
+				m1.addWord(getWord(line.split("~")[0]));
 				en.addMention(m1);
 				
 				Mention m2 = new Mention();
-				m2.addWord(new Word("",0,0,line.split("~")[1]));
+				m2.addWord(getWord(line.split("~")[1]));
 				en.addMention(m2);
 				
 				this.coreferents.add(en);
@@ -118,6 +118,22 @@ public class JavaRapRunner extends Runner {
 		
 	}
 
+	/**
+	 * Returns the {@link Word} of the MMAX file with the given ID, so that the word carries its
+	 * ordinal. 
+	 * <br>
+	 * The word also carries its token, so the features of JavaRap pairs are extracted from the
+	 * real words (e.g. stringMatch compares the tokens instead of two empty strings). 
+	 * 
+	 * @param id ID of the word.
+	 * @return The word of the MMAX file or a new word if there's no word with this ID.
+	 */
+	private Word getWord(String id) {
+		Word word = this.mmax.getWords().get(id);
+		
+		return (word != null) ? word : new Word("", 0, 0, id);
+	}
+
 	@Override
 	public void init(MMAXParser mmax) {this.mmax = mmax;}
 }
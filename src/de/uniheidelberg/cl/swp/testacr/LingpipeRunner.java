@@ -136,8 +136,8 @@ public class LingpipeRunner extends Runner {
 		this.entityList.clear();
 		
 		// start linpgipe process
-		this.process(mmax.getPlainTextAsString().toCharArray(), 0, 
-					 mmax.getPlainTextAsString().length());
+		String text = mmax.getPlainTextAsString();
+		this.process(text.toCharArray(), 0, text.length());
     }
     
     /**
@@ -153,10 +153,7 @@ public class LingpipeRunner extends Runner {
      * @return The Word object referring to the corresponding MMAx-Word.
      */
     public Word getWordFromAbsolutePosition(int absolutePosition) {
-    	for (Word word : mmax.getWordList()) {
-    		if (word.getAbsolutePosition() == absolutePosition-1) return word;
-		}
-    	return null;
+    	return mmax.getDocumentText().getWordAt(absolutePosition);
     }
     
     /**
@@ -228,12 +225,14 @@ public class LingpipeRunner extends Runner {
 		    start = neChunk.start() + sentstart;
 		    end = neChunk.end() + sentstart;
 		    
+		    Word word = getWordFromAbsolutePosition(start);
+		    
 		    // found a corresponding (MMAx) Word at mentions's position
-		    if (!(getWordFromAbsolutePosition(start) == null)) {
+		    if (!(word == null)) {
 		    	// add the mention to the appropriate entity
 		    	de.uniheidelberg.cl.swp.datastructure.Mention m =
 		    		new de.uniheidelberg.cl.swp.datastructure.Mention();
-				m.addWord(getWordFromAbsolutePosition(start));
+				m.addWord(word);
 		    	String entityId = Integer.toString(mentionId);
 		    	
 				if (! this.entityMap.containsKey(entityId)) {
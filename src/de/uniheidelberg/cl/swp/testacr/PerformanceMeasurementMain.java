@@ -32,7 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 import org.eml.MMAX2.core.MMAX2;
-import de.uniheidelberg.cl.swp.datastructure.CoreferencePair;
+import de.uniheidelberg.cl.swp.datastructure.PairTable;
 import de.uniheidelberg.cl.swp.featureExtraction.FeatureExtractionProcess;
 import de.uniheidelberg.cl.swp.io.ACRResultWriter;
 import de.uniheidelberg.cl.swp.io.Configuration;
@@ -40,6 +40,7 @@ import de.uniheidelberg.cl.swp.io.Logging;
 import de.uniheidelberg.cl.swp.io.MMAXFileFilter;
 import de.uniheidelberg.cl.swp.mlprocess.InstanceContainer;
 import de.uniheidelberg.cl.swp.mlprocess.WEKARunner;
+import de.uniheidelberg.cl.swp.util.CorpusLoader;
 import de.uniheidelberg.cl.swp.util.MMAXParser;
 
 
@@ -101,7 +102,7 @@ public class PerformanceMeasurementMain {
 	 * 2. For each ACR system<br>
 	 * 		- Get all the training files in the specified directory (see {@link Configuration}.<br>
 	 * 		- Extract the basedata (raw words) and correct coreferences (gold standard)<br>
-	 * 		- Split gold standard into CorefPairs<br>
+	 * 		- Split gold standard into CorefPairs, stored in a {@link PairTable}<br>
 	 * 		- Extract all features from CorefPairs (gold standard)<br>
 	 * 	  2.1 Run each acr systems in acrRunner.run()<br>
 	 * 	  2.2 Get predicted corefs by ACR-System<br>
@@ -136,12 +137,14 @@ public class PerformanceMeasurementMain {
 			
 
 			// run the acr system for each mmax file 
-			for (String mmaxFile : mmaxTestFiles) {
-				this.logger.info("\n\n*** Loading " + mmaxFile);
+			for (MMAXParser mmaxParser : new CorpusLoader(mmaxTestFiles)) {
+				String mmaxFile = mmaxParser.getFileName();
+				this.logger.info("\n\n*** Loaded " + mmaxFile);
 				
-				// processing an mmax-file
-				MMAXParser mmaxParser = MMAXParser.processMMAXFile(mmaxFile);
-				List<CoreferencePair> corefPairsGold = mmaxParser.getCorefPairs();
+				/* the pairs are stored column by column, CoreferencePair objects are only created
+				 * for the pairs written to the results */
+				PairTable corefPairsGold = PairTable.fromEntities(mmaxParser.getGoldEntities(),
+						mmaxParser);
 				
 				
 				this.logger.info("Gold standard contains " + corefPairsGold.size() +
@@ -149,11 +152,11 @@ public class PerformanceMeasurementMain {
 				// extract the coreference pair features
 				this.logger.info("Extracting features for coreference pairs");
 				
-				featureExtraction.extractFeatures(corefPairsGold, mmaxParser);
+				featureExtraction.extractFeatures(corefPairsGold);
 				instances.createAttributeStructure(featureExtraction.getFeatureExtractorList());
 				
 				
-				List<CoreferencePair> hypothesis = new ArrayList<CoreferencePair>();
+				PairTable hypothesis;
 				
 				this.logger.info(" \t\t [*** Running ACR-system " + 
 								   curAcr.getClass().getCanonicalName() + " ***]");
@@ -166,30 +169,30 @@ public class PerformanceMeasurementMain {
 					curAcr.init(mmaxParser);
 					curAcr.run();
 					// split coreference chains into pairs
-					hypothesis = MMAXParser.splitCorefChainsToPairs(curAcr.getCoreferents());
+					hypothesis = PairTable.fromEntities(curAcr.getCoreferents(), mmaxParser);
 					 
-					featureExtraction.extractFeatures(hypothesis, mmaxParser);
+					featureExtraction.extractFeatures(hypothesis);
 					
 					this.logger.info("ACR " + curAcr.getClass().getCanonicalName()  + 
 								    	" predicted " + hypothesis.size() + " entities.");
 					
 					eval.evaluateFeatureDep(hypothesis, corefPairsGold);
+					eval.getChainEvaluation().evaluate(mmaxParser.getGoldEntities(),
+							curAcr.getCoreferents());
 					outputFile.writeCorefResults(mmaxFile, eval.getTruePositiveList() , 
 												eval.getFalseNegativeList(),
 												eval.getFalsePositiveList());
 					
-					hypothesis.clear();
 					this.logger.info("\nCurrent average recall = " + 
 									(eval.getTruePositives() / (eval.getTruePositives() + 
 									 eval.getFalseNegatives())) + "\n\n\n");
 					
 					// store true positives in a weka file
-					this.instances.addCorefInstances(eval.getTruePositiveList(), 
+					this.instances.addCorefInstances(eval.getTruePositiveTable(), 
 													 curAcr.getClass().getCanonicalName(), "+");
 
 					// store a balanced list of false positives
-					List<CoreferencePair> balancedList = 
-												balanceNegativeList(eval.getFalsePositiveList());
+					PairTable balancedList = balanceNegativeList(eval.getFalsePositiveTable());
 					this.instances.addCorefInstances(balancedList, 
 													 curAcr.getClass().getCanonicalName(), "-");
 				}	
@@ -206,6 +209,15 @@ public class PerformanceMeasurementMain {
 								(eval.getTruePositives() / 
 										(eval.getTruePositives() + eval.getFalseNegatives())));
 			
+			/* the chain-level scores of the ACR-System, which are also written to the report */
+			ChainEvaluation chainEval = eval.getChainEvaluation();
+			
+			for (ChainEvaluation.Metric metric : ChainEvaluation.Metric.values()) {
+				this.logger.info("Overall " + metric + " F-Score: " + chainEval.getFScore(metric));
+			}
+			System.out.println(curAcr.getClass().getCanonicalName() + 
+					": average chain F-Score (MUC, B3, CEAF-e) " + chainEval.getAverageFScore());
+			
 			outputFile.writeOverallResult(eval);
 			
 			
@@ -226,17 +238,18 @@ public class PerformanceMeasurementMain {
 	 * we balance the amount of negative examples. Therefore we just take half of the amount of 
 	 * false positives.
 	 *    
-	 * @param falsePositives The list of False positives which has to be balanced.
-	 * @return A balanced list containing the half of the examples of the original list. 
+	 * @param falsePositives The table of False positives which has to be balanced.
+	 * @return A balanced table containing the half of the examples of the original table. 
 	 */
-	private List<CoreferencePair> balanceNegativeList(List<CoreferencePair> falsePositives) {
-		List<CoreferencePair> balancedList = new ArrayList<CoreferencePair>();
+	private PairTable balanceNegativeList(PairTable falsePositives) {
+		int[] balancedRows = new int[falsePositives.size()];
+		int count = 0;
 		
 		for (int i = 0; i < falsePositives.size() -2; i+=2) {
-			balancedList.add(falsePositives.get(i));
+			balancedRows[count++] = i;
 		}
 		
-		return balancedList;
+		return falsePositives.select(balancedRows, null, count);
 	}
 	
 	/**
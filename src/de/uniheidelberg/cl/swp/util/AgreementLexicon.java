@@ -0,0 +1,524 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.util
+ * class: AgreementLexicon
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import de.uniheidelberg.cl.swp.io.Configuration;
+import de.uniheidelberg.cl.swp.io.Logging;
+
+
+/**
+ * A gender and number lexicon which is memory-mapped instead of being loaded onto the heap.
+ * <br>
+ * <p>The lexicon is built once from a text file with a line per (lower-cased) noun phrase:
+ * the phrase, a tab and the numbers of its masculine, feminine, neuter and plural occurrences,
+ * separated by spaces (the format of the gender/number data of Bergsma and Lin). The counts are
+ * reduced to the dominant {@link Gender} and {@link GrammaticalNumber} of the phrase, the
+ * phrases are sorted and written in blocks of {@link #BLOCK_SIZE} entries, in which each phrase
+ * only stores the suffix it doesn't share with its predecessor. A lookup searches the first
+ * phrases of the blocks binary and scans a single block, so it reads only a few pages of the
+ * file, which are cached by the operating system.</p>
+ * <p>The lexicon file is taken from the config entry "AgreementLexicon" and built by
+ * <code>ant lexicon</code> or the {@link #main(String[])} method. Personal pronouns are always
+ * known, even without a lexicon file.</p>
+ * <br>
+ * <p>File format (all numbers are big-endian):
+ * <br>
+ * magic, version, number of entries, number of blocks (ints)<br>
+ * offset of each block (ints)<br>
+ * each block: up to {@link #BLOCK_SIZE} entries, each: length of the prefix shared with the
+ * previous entry of the block (unsigned byte), length of the suffix (unsigned short), UTF-8 bytes
+ * of the suffix, code of the gender and number (byte)</p>
+ */
+public class AgreementLexicon {
+	/**
+	 * The grammatical gender of a noun phrase.
+	 */
+	public enum Gender { MASCULINE, FEMININE, NEUTER }
+	
+	/**
+	 * The grammatical number of a noun phrase.
+	 */
+	public enum GrammaticalNumber { SINGULAR, PLURAL }
+	
+	/**
+	 * Number of entries per block.
+	 */
+	public static final int BLOCK_SIZE = 16;
+	
+	/**
+	 * Code of a phrase which isn't part of the lexicon.
+	 */
+	public static final byte UNKNOWN = 0;
+	
+	private static final int MAGIC = 0x4c455843;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int MAX_PREFIX = 0xff;
+	private static final int MAX_SUFFIX = 0xffff;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Gender[] GENDERS = Gender.values();
+	private static final GrammaticalNumber[] NUMBERS = GrammaticalNumber.values();
+	
+	/**
+	 * Codes of the personal pronouns.
+	 */
+	private static final Map<String, Byte> PRONOUNS = new HashMap<String, Byte>();
+	
+	static {
+		for (String pronoun : new String[] {"he", "him", "his", "himself"}) {
+			PRONOUNS.put(pronoun, encode(Gender.MASCULINE, GrammaticalNumber.SINGULAR));
+		}
+		for (String pronoun : new String[] {"she", "her", "hers", "herself"}) {
+			PRONOUNS.put(pronoun, encode(Gender.FEMININE, GrammaticalNumber.SINGULAR));
+		}
+		for (String pronoun : new String[] {"it", "its", "itself"}) {
+			PRONOUNS.put(pronoun, encode(Gender.NEUTER, GrammaticalNumber.SINGULAR));
+		}
+		for (String pronoun : new String[] {"they", "them", "their", "theirs", "themselves"}) {
+			PRONOUNS.put(pronoun, encode(null, GrammaticalNumber.PLURAL));
+		}
+	}
+	
+	private static AgreementLexicon instance;
+	private static boolean opened;
+	
+	/**
+	 * The mapped lexicon file, which is only read with absolute positions, so it can be shared
+	 * by all threads.
+	 */
+	private final ByteBuffer buffer;
+	private final int entryCount;
+	private final int blockCount;
+	private final String fingerprint;
+	
+	/**
+	 * Orders the entries of {@link #build(File, File)} by the unsigned bytes of their phrases.
+	 */
+	private static final Comparator<byte[]> PHRASE_ORDER = new Comparator<byte[]>() {
+		@Override
+		public int compare(byte[] entry1, byte[] entry2) {
+			int length1 = entry1.length - 1;
+			int length2 = entry2.length - 1;
+			
+			for (int i = 0; i < Math.min(length1, length2); i++) {
+				int c = (entry1[i] & 0xff) - (entry2[i] & 0xff);
+				
+				if (c != 0) return c;
+			}
+			return length1 - length2;
+		}
+	};
+	
+	/**
+	 * Maps a lexicon file.
+	 * 
+	 * @param file The lexicon file.
+	 * @throws IOException If the file isn't a lexicon or couldn't be read.
+	 */
+	public AgreementLexicon(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		
+		try {
+			FileChannel channel = in.getChannel();
+			
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			in.close();
+		}
+		
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a lexicon file: " + file);
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported lexicon version: " + file);
+		}
+		this.entryCount = buffer.getInt(8);
+		this.blockCount = buffer.getInt(12);
+		
+		this.fingerprint = file.lastModified() + ":" + entryCount;
+	}
+	
+	/**
+	 * Returns the lexicon of the {@link Configuration}, which is opened on first access.
+	 * 
+	 * @return The lexicon or null if no lexicon file is configured.
+	 * @throws IllegalStateException If the configured lexicon file couldn't be read.
+	 */
+	public static synchronized AgreementLexicon getInstance() {
+		if (! opened) {
+			String path = Configuration.getInstance().getProperties().getProperty(
+					"AgreementLexicon", "").trim();
+			
+			if (path.length() > 0) {
+				try {
+					instance = new AgreementLexicon(new File(path));
+				} catch (IOException e) {
+					throw new IllegalStateException("Couldn't open agreement lexicon " + path, e);
+				}
+			}
+			opened = true;
+		}
+		return instance;
+	}
+	
+	/**
+	 * Getter for the number of phrases in the lexicon file.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int size() { return entryCount; }
+	
+	/**
+	 * Returns a fingerprint of the lexicon file, which changes whenever the file is rebuilt.
+	 * 
+	 * @return The fingerprint derived from the modification time and the size of the lexicon.
+	 */
+	public String getFingerprint() { return fingerprint; }
+	
+	/**
+	 * Looks up the gender and number of a noun phrase.
+	 * 
+	 * @param phrase The lower-cased phrase, tokens separated by single spaces.
+	 * @return The code of the phrase (see {@link #getGender(byte)} and {@link #getNumber(byte)}),
+	 *   {@link #UNKNOWN} if it isn't part of the lexicon.
+	 */
+	public byte lookup(String phrase) {
+		Byte pronoun = PRONOUNS.get(phrase);
+		
+		if (pronoun != null) return pronoun;
+		byte[] key = phrase.getBytes(UTF8);
+		
+		/* the last block whose first phrase isn't greater than the key */
+		int block = -1;
+		int low = 0;
+		int high = blockCount - 1;
+		
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int offset = getBlockOffset(mid);
+			
+			if (compare(offset + 3, buffer.getShort(offset + 1) & MAX_SUFFIX, key) <= 0) {
+				block = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (block < 0) return UNKNOWN;
+		
+		/* restore the phrases of the block until the key is reached */
+		int offset = getBlockOffset(block);
+		int entries = Math.min(BLOCK_SIZE, entryCount - block * BLOCK_SIZE);
+		byte[] current = new byte[key.length];
+		
+		for (int i = 0; i < entries; i++) {
+			int prefix = buffer.get(offset) & MAX_PREFIX;
+			int suffix = buffer.getShort(offset + 1) & MAX_SUFFIX;
+			int length = prefix + suffix;
+			
+			if (length > current.length) current = Arrays.copyOf(current, length);
+			for (int j = 0; j < suffix; j++) {
+				current[prefix + j] = buffer.get(offset + 3 + j);
+			}
+			int c = compare(current, length, key);
+			
+			if (c == 0) return buffer.get(offset + 3 + suffix);
+			if (c > 0) return UNKNOWN;
+			offset += 3 + suffix + 1;
+		}
+		return UNKNOWN;
+	}
+	
+	/**
+	 * Returns the offset of a block in the file.
+	 */
+	private int getBlockOffset(int block) {
+		return buffer.getInt(HEADER_SIZE + 4 * block);
+	}
+	
+	/**
+	 * Compares a phrase in the file with a key by their unsigned bytes.
+	 */
+	private int compare(int offset, int length, byte[] key) {
+		for (int i = 0; i < Math.min(length, key.length); i++) {
+			int c = (buffer.get(offset + i) & 0xff) - (key[i] & 0xff);
+			
+			if (c != 0) return c;
+		}
+		return length - key.length;
+	}
+	
+	/**
+	 * Compares a restored phrase with a key by their unsigned bytes.
+	 */
+	private static int compare(byte[] phrase, int length, byte[] key) {
+		for (int i = 0; i < Math.min(length, key.length); i++) {
+			int c = (phrase[i] & 0xff) - (key[i] & 0xff);
+			
+			if (c != 0) return c;
+		}
+		return length - key.length;
+	}
+	
+	/**
+	 * Encodes the gender and number of a phrase.
+	 * 
+	 * @param gender The gender or null if it is unknown.
+	 * @param number The number or null if it is unknown.
+	 * @return The code, {@link #UNKNOWN} if both are unknown.
+	 */
+	public static byte encode(Gender gender, GrammaticalNumber number) {
+		int code = gender == null ? 0 : gender.ordinal() + 1;
+		
+		if (number != null) code |= (number.ordinal() + 1) << 2;
+		return (byte) code;
+	}
+	
+	/**
+	 * Decodes the gender of a phrase.
+	 * 
+	 * @param code The code returned by {@link #lookup(String)}.
+	 * @return The gender or null if it is unknown.
+	 */
+	public static Gender getGender(byte code) {
+		int gender = code & 3;
+		
+		return gender == 0 ? null : GENDERS[gender - 1];
+	}
+	
+	/**
+	 * Decodes the number of a phrase.
+	 * 
+	 * @param code The code returned by {@link #lookup(String)}.
+	 * @return The number or null if it is unknown.
+	 */
+	public static GrammaticalNumber getNumber(byte code) {
+		int number = (code >> 2) & 3;
+		
+		return number == 0 ? null : NUMBERS[number - 1];
+	}
+	
+	/**
+	 * Builds a lexicon file from a text file with the counts of the phrases.
+	 * <br>
+	 * The phrases are lower-cased; if a phrase occurs more than once, the first line is used.
+	 * Lines which can't be parsed are skipped. The lexicon is written to a temporary file first,
+	 * so that it is never mapped while it is being written.
+	 * 
+	 * @param source The text file.
+	 * @param target The lexicon file.
+	 * @return The number of phrases in the lexicon.
+	 * @throws IOException If the text file couldn't be read or the lexicon couldn't be written.
+	 */
+	public static int build(File source, File target) throws IOException {
+		List<byte[]> entries = new ArrayList<byte[]>();
+		int skipped = 0;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(source), UTF8));
+		
+		try {
+			String line;
+			
+			while ((line = reader.readLine()) != null) {
+				byte[] entry = parseEntry(line);
+				
+				if (entry == null) skipped++;
+				else entries.add(entry);
+			}
+		} finally {
+			reader.close();
+		}
+		if (skipped > 0) {
+			Logging.getInstance().getLogger().warning("Skipped " + skipped + " lines of " + source);
+		}
+		
+		/* the sort is stable, so the first of equal phrases is kept */
+		Collections.sort(entries, PHRASE_ORDER);
+		int size = 0;
+		
+		for (int i = 0; i < entries.size(); i++) {
+			if (size == 0 || PHRASE_ORDER.compare(entries.get(size - 1), entries.get(i)) != 0) {
+				entries.set(size++, entries.get(i));
+			}
+		}
+		entries.subList(size, entries.size()).clear();
+		
+		/* the offsets of the blocks follow from the lengths of the shared prefixes */
+		int blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int[] blockOffsets = new int[blockCount];
+		long offset = HEADER_SIZE + 4L * blockCount;
+		
+		for (int i = 0; i < size; i++) {
+			if (i % BLOCK_SIZE == 0) {
+				if (offset > Integer.MAX_VALUE) throw new IOException("Lexicon too large");
+				blockOffsets[i / BLOCK_SIZE] = (int) offset;
+			}
+			offset += 3 + entries.get(i).length - 1 - getPrefix(entries, i) + 1;
+		}
+		
+		File tempFile = new File(target.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile)));
+		
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(size);
+			out.writeInt(blockCount);
+			
+			for (int blockOffset : blockOffsets) {
+				out.writeInt(blockOffset);
+			}
+			
+			for (int i = 0; i < size; i++) {
+				byte[] entry = entries.get(i);
+				int prefix = getPrefix(entries, i);
+				
+				out.writeByte(prefix);
+				out.writeShort(entry.length - 1 - prefix);
+				out.write(entry, prefix, entry.length - prefix);
+			}
+		} finally {
+			out.close();
+		}
+		
+		if (target.exists() && ! target.delete() || ! tempFile.renameTo(target)) {
+			tempFile.delete();
+			throw new IOException("Couldn't replace " + target);
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns the length of the prefix an entry shares with the previous entry of its block.
+	 */
+	private static int getPrefix(List<byte[]> entries, int i) {
+		if (i % BLOCK_SIZE == 0) return 0;
+		byte[] previous = entries.get(i - 1);
+		byte[] entry = entries.get(i);
+		int max = Math.min(MAX_PREFIX, Math.min(previous.length, entry.length) - 1);
+		int prefix = 0;
+		
+		while (prefix < max && previous[prefix] == entry[prefix]) prefix++;
+		return prefix;
+	}
+	
+	/**
+	 * Parses a line of the text file.
+	 * <br>
+	 * The number of a phrase is plural if it occurs more often as plural than as singular; the
+	 * gender of singular phrases is the gender it occurs with most often (unknown on ties).
+	 * 
+	 * @param line The phrase, a tab and the masculine, feminine, neuter and plural counts.
+	 * @return The UTF-8 bytes of the lower-cased phrase followed by its code or null if the line
+	 *   can't be parsed.
+	 */
+	private static byte[] parseEntry(String line) {
+		int tab = line.indexOf('\t');
+		
+		if (tab <= 0) return null;
+		String[] fields = line.substring(tab + 1).trim().split("\\s+");
+		
+		if (fields.length < 4) return null;
+		long[] counts = new long[4];
+		
+		try {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = Long.parseLong(fields[i]);
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		long singular = counts[0] + counts[1] + counts[2];
+		
+		if (singular + counts[3] <= 0) return null;
+		Gender gender = null;
+		GrammaticalNumber number = counts[3] > singular ? 
+				GrammaticalNumber.PLURAL : GrammaticalNumber.SINGULAR;
+		
+		if (number == GrammaticalNumber.SINGULAR) {
+			long max = 0;
+			boolean tie = false;
+			
+			for (Gender g : GENDERS) {
+				if (counts[g.ordinal()] > max) {
+					gender = g;
+					max = counts[g.ordinal()];
+					tie = false;
+				} else if (counts[g.ordinal()] == max) {
+					tie = true;
+				}
+			}
+			if (tie) gender = null;
+		}
+		byte[] phrase = line.substring(0, tab).trim().toLowerCase().getBytes(UTF8);
+		
+		if (phrase.length == 0 || phrase.length > MAX_SUFFIX) return null;
+		byte[] entry = Arrays.copyOf(phrase, phrase.length + 1);
+		
+		entry[phrase.length] = encode(gender, number);
+		return entry;
+	}
+	
+	/**
+	 * Builds a lexicon file.
+	 * 
+	 * @param args Path to the text file and to the lexicon file.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("\nSyntax: AgreementLexicon <textFile> <lexiconFile>\n");
+			System.exit(0);
+		}
+		try {
+			int size = build(new File(args[0]), new File(args[1]));
+			System.out.println(size + " phrases written to " + args[1]);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
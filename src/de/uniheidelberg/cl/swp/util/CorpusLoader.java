@@ -0,0 +1,179 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.util
+ * class: CorpusLoader
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import de.uniheidelberg.cl.swp.io.Configuration;
+
+
+/**
+ * Parses a list of MMAX files on a bounded thread pool via {@link MMAXParser#processMMAXFile}.
+ * 
+ * <p>The parsed documents are returned in the order of the file list, regardless of the order
+ * in which the parses finish. At most two documents per thread are parsed ahead of the consumer
+ * so that the memory usage stays bounded for large corpora.</p>
+ * 
+ * <p>The number of threads is read from the "CorpusLoaderThreads" entry of the configuration.
+ * A missing entry or a value below 1 uses one thread per available processor.</p>
+ */
+public class CorpusLoader implements Iterable<MMAXParser> {
+	private final List<String> mmaxFiles;
+	private final int parallelism;
+	
+	/**
+	 * Constructor which uses the configured number of threads.
+	 * 
+	 * @param mmaxFiles MMAX files to be loaded.
+	 */
+	public CorpusLoader(List<String> mmaxFiles) {
+		this(mmaxFiles, getConfiguredParallelism());
+	}
+	
+	/**
+	 * Constructor for an explicit number of threads.
+	 * 
+	 * @param mmaxFiles MMAX files to be loaded.
+	 * @param parallelism Number of documents which are parsed concurrently.
+	 */
+	public CorpusLoader(List<String> mmaxFiles, int parallelism) {
+		this.mmaxFiles = mmaxFiles;
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
+	/**
+	 * Returns the number of threads specified by the "CorpusLoaderThreads" entry of the
+	 * configuration.
+	 * 
+	 * @return Number of loader threads.
+	 */
+	public static int getConfiguredParallelism() {
+		return Configuration.getInstance().getThreadCount("CorpusLoaderThreads");
+	}
+
+	/**
+	 * Starts parsing the files and returns the parsed documents in the order of the file list.
+	 * 
+	 * <p>Exceptions thrown while parsing a document are rethrown by {@link Iterator#next()}
+	 * for that document.</p>
+	 * 
+	 * @return Iterator over the parsed documents.
+	 */
+	@Override
+	public Iterator<MMAXParser> iterator() {
+		return new LoadingIterator();
+	}
+	
+	/**
+	 * Iterator which keeps a window of pending parses in file order.
+	 */
+	private class LoadingIterator implements Iterator<MMAXParser> {
+		private final ExecutorService executor;
+		private final Deque<Future<MMAXParser>> pending = new ArrayDeque<Future<MMAXParser>>();
+		private int nextFile = 0;
+		
+		/**
+		 * Creates the thread pool and submits the first window of files.
+		 */
+		LoadingIterator() {
+			int threads = Math.min(parallelism, Math.max(1, mmaxFiles.size()));
+			
+			/* daemon threads do not keep the JVM alive if the iteration is abandoned */
+			this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "corpus-loader");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			fill();
+		}
+		
+		/**
+		 * Submits files until the window of pending parses is full.
+		 */
+		private void fill() {
+			while (nextFile < mmaxFiles.size() && pending.size() < 2 * parallelism) {
+				final String mmaxFile = mmaxFiles.get(nextFile++);
+				
+				pending.add(executor.submit(new Callable<MMAXParser>() {
+					@Override
+					public MMAXParser call() {
+						return MMAXParser.processMMAXFile(mmaxFile);
+					}
+				}));
+			}
+			if (pending.isEmpty()) { executor.shutdown(); }
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !pending.isEmpty();
+		}
+
+		@Override
+		public MMAXParser next() {
+			if (pending.isEmpty()) { throw new NoSuchElementException(); }
+			
+			Future<MMAXParser> future = pending.poll();
+			fill();
+			
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				throw new IllegalStateException("Interrupted while loading the corpus", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,505 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.util
+ * class: CorpusSnapshot
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import de.uniheidelberg.cl.swp.datastructure.Entity;
+import de.uniheidelberg.cl.swp.datastructure.Mention;
+import de.uniheidelberg.cl.swp.datastructure.Word;
+import de.uniheidelberg.cl.swp.io.Configuration;
+import de.uniheidelberg.cl.swp.io.Logging;
+
+
+/**
+ * A compact binary snapshot of a parsed MMAX-file.
+ * <br>
+ * <p>Building the MMAX-Discourse is the most expensive part of loading a document. A snapshot
+ * stores everything we read from an MMAX-file (the words, the tags of the
+ * {@link MMAXParser#ANNOTATION_LEVELS} and the entities of the {@link MMAXParser#COREF_LEVELS})
+ * and is memory-mapped when it is loaded again by {@link MMAXParser#processMMAXFile(String)}.</p>
+ * <p>The snapshot of <code>corpus/file.mmax</code> is stored as
+ * <code>corpus/snapshot/file.mmax.snap</code>. It is only used as long as none of the files it
+ * has been created from has changed. Snapshots are switched on by the "CorpusSnapshots" entry in
+ * the {@link Configuration}.</p>
+ * <br>
+ * <p>File format (all numbers are big-endian ints/longs, strings are UTF-8 with an int length):
+ * <br>
+ * magic, version<br>
+ * number of source files, each: path, last modified, length<br>
+ * words file, basedata path<br>
+ * number of strings, each: string<br>
+ * number of words, each: id, token (string table indices), absolute position<br>
+ * number of annotation levels, each: name, present flag, tag index for every word (-1 = none)<br>
+ * number of coref levels, each: name, number of entities, each: id, number of mentions, each:
+ * type, number of words, word positions</p>
+ */
+public class CorpusSnapshot {
+	private static final int MAGIC = 0x454c4143;
+	private static final int VERSION = 1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private String wordFileName;
+	private String basedataPath;
+	private List<Word> wordList;
+	private Map<String, String[]> markableTags;
+	
+	/**
+	 * The entities of each coreference level: entity ID, mention types and the word positions
+	 * of each mention.
+	 */
+	private Map<String, String[]> entityIds;
+	private Map<String, String[][]> mentionTypes;
+	private Map<String, int[][][]> mentionWords;
+	
+	/**
+	 * Snapshots are only created by {@link #load(String)}.
+	 */
+	private CorpusSnapshot() {
+		this.wordList = new ArrayList<Word>();
+		this.markableTags = new HashMap<String, String[]>();
+		this.entityIds = new HashMap<String, String[]>();
+		this.mentionTypes = new HashMap<String, String[][]>();
+		this.mentionWords = new HashMap<String, int[][][]>();
+	}
+	
+	/**
+	 * Checks whether snapshots are enabled by the {@link Configuration}.
+	 * 
+	 * @return true if snapshots should be read and written.
+	 */
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(
+				Configuration.getInstance().getProperties().getProperty("CorpusSnapshots"));
+	}
+	
+	/**
+	 * Returns the location of the snapshot for an MMAX-file.
+	 * 
+	 * @param mmaxFileName Path to the MMAX-file.
+	 * @return The snapshot file.
+	 */
+	public static File getSnapshotFile(String mmaxFileName) {
+		File mmaxFile = new File(mmaxFileName).getAbsoluteFile();
+		
+		return new File(new File(mmaxFile.getParentFile(), "snapshot"),
+				mmaxFile.getName() + ".snap");
+	}
+	
+	/**
+	 * Loads the snapshot of an MMAX-file.
+	 * 
+	 * @param mmaxFileName Path to the MMAX-file.
+	 * @return The snapshot or null if there's no fresh snapshot for the file.
+	 */
+	public static CorpusSnapshot load(String mmaxFileName) {
+		File file = getSnapshotFile(mmaxFileName);
+		
+		if (! file.exists()) {
+			return null;
+		}
+		
+		try {
+			FileInputStream in = new FileInputStream(file);
+			
+			try {
+				FileChannel channel = in.getChannel();
+				
+				return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			Logging.getInstance().getLogger().warning("Couldn't read snapshot " + file + ": " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads a snapshot from a buffer.
+	 * 
+	 * @param buffer The mapped snapshot file.
+	 * @return The snapshot or null if it is outdated.
+	 */
+	private static CorpusSnapshot read(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a snapshot file");
+		}
+		if (buffer.getInt() != VERSION) {
+			return null;
+		}
+		
+		/* check whether one of the source files has changed */
+		int sourceCount = buffer.getInt();
+		
+		for (int i = 0; i < sourceCount; i++) {
+			File source = new File(readString(buffer));
+			long lastModified = buffer.getLong();
+			long length = buffer.getLong();
+			
+			if (source.lastModified() != lastModified || getLength(source) != length) {
+				return null;
+			}
+		}
+		CorpusSnapshot snapshot = new CorpusSnapshot();
+		snapshot.wordFileName = readString(buffer);
+		snapshot.basedataPath = readString(buffer);
+		
+		String[] strings = new String[buffer.getInt()];
+		
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = readString(buffer);
+		}
+		
+		int wordCount = buffer.getInt();
+		
+		for (int i = 0; i < wordCount; i++) {
+			String id = strings[buffer.getInt()];
+			String token = strings[buffer.getInt()];
+			Word word = new Word(token, "", id);
+			
+			word.setAbsolutePosition(buffer.getInt());
+			snapshot.wordList.add(word);
+		}
+		
+		int levelCount = buffer.getInt();
+		
+		for (int i = 0; i < levelCount; i++) {
+			String level = strings[buffer.getInt()];
+			
+			if (buffer.get() == 0) {
+				snapshot.markableTags.put(level, null);
+				continue;
+			}
+			String[] tags = new String[wordCount];
+			
+			for (int w = 0; w < wordCount; w++) {
+				tags[w] = getString(strings, buffer.getInt());
+			}
+			snapshot.markableTags.put(level, tags);
+		}
+		
+		int corefLevelCount = buffer.getInt();
+		
+		for (int i = 0; i < corefLevelCount; i++) {
+			String level = strings[buffer.getInt()];
+			String[] ids = new String[buffer.getInt()];
+			String[][] types = new String[ids.length][];
+			int[][][] words = new int[ids.length][][];
+			
+			for (int e = 0; e < ids.length; e++) {
+				ids[e] = getString(strings, buffer.getInt());
+				types[e] = new String[buffer.getInt()];
+				words[e] = new int[types[e].length][];
+				
+				for (int m = 0; m < types[e].length; m++) {
+					types[e][m] = getString(strings, buffer.getInt());
+					words[e][m] = new int[buffer.getInt()];
+					
+					for (int w = 0; w < words[e][m].length; w++) {
+						words[e][m][w] = buffer.getInt();
+					}
+				}
+			}
+			snapshot.entityIds.put(level, ids);
+			snapshot.mentionTypes.put(level, types);
+			snapshot.mentionWords.put(level, words);
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Writes the snapshot of a parsed MMAX-file.
+	 * <br>
+	 * The snapshot is written to a temporary file first, so that a snapshot is never read while
+	 * it is being written.
+	 * 
+	 * @param mmax The parsed MMAX-file (built from the MMAX annotation).
+	 * @throws IOException If the snapshot couldn't be written.
+	 */
+	public static void write(MMAXParser mmax) throws IOException {
+		File file = getSnapshotFile(mmax.getFileName());
+		File tempFile = new File(file.getPath() + ".tmp");
+		
+		file.getParentFile().mkdirs();
+		
+		/* collect all the data before anything is written */
+		List<String> sources = mmax.getSourceFiles();
+		List<Word> words = mmax.getWordList();
+		Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		Map<String, String[]> tags = new LinkedHashMap<String, String[]>();
+		Map<String, List<Entity>> entities = new LinkedHashMap<String, List<Entity>>();
+		Map<Word, Integer> positions = new HashMap<Word, Integer>();
+		
+		for (int i = 0; i < words.size(); i++) {
+			addString(strings, words.get(i).getXmlId());
+			addString(strings, words.get(i).getToken());
+			positions.put(words.get(i), i);
+		}
+		
+		for (String level : MMAXParser.ANNOTATION_LEVELS) {
+			tags.put(level, mmax.getMarkableTags(level));
+			addString(strings, level);
+			
+			if (tags.get(level) == null) continue;
+			
+			for (String tag : tags.get(level)) { addString(strings, tag); }
+		}
+		
+		for (String level : MMAXParser.COREF_LEVELS) {
+			List<Entity> levelEntities = mmax.getEntities(level);
+			
+			if (levelEntities == null) continue;
+			
+			entities.put(level, levelEntities);
+			addString(strings, level);
+			
+			for (Entity entity : levelEntities) {
+				addString(strings, entity.getID());
+				
+				for (Mention mention : entity.getMentions()) {
+					addString(strings, mention.getType());
+				}
+			}
+		}
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile)));
+		
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(sources.size());
+			
+			for (String source : sources) {
+				writeString(out, source);
+				out.writeLong(new File(source).lastModified());
+				out.writeLong(getLength(new File(source)));
+			}
+			writeString(out, mmax.getWordFileName());
+			writeString(out, mmax.getBasedataPath());
+			
+			out.writeInt(strings.size());
+			
+			for (String string : strings.keySet()) {
+				writeString(out, string);
+			}
+			
+			out.writeInt(words.size());
+			
+			for (Word word : words) {
+				out.writeInt(strings.get(word.getXmlId()));
+				out.writeInt(strings.get(word.getToken()));
+				out.writeInt(word.getAbsolutePosition());
+			}
+			
+			out.writeInt(tags.size());
+			
+			for (String level : tags.keySet()) {
+				out.writeInt(strings.get(level));
+				out.writeByte(tags.get(level) == null ? 0 : 1);
+				
+				if (tags.get(level) == null) continue;
+				
+				for (String tag : tags.get(level)) {
+					out.writeInt(tag == null ? -1 : strings.get(tag));
+				}
+			}
+			
+			out.writeInt(entities.size());
+			
+			for (String level : entities.keySet()) {
+				out.writeInt(strings.get(level));
+				out.writeInt(entities.get(level).size());
+				
+				for (Entity entity : entities.get(level)) {
+					out.writeInt(entity.getID() == null ? -1 : strings.get(entity.getID()));
+					out.writeInt(entity.getMentions().size());
+					
+					for (Mention mention : entity.getMentions()) {
+						out.writeInt(mention.getType() == null ? -1 :
+								strings.get(mention.getType()));
+						out.writeInt(mention.getWordList().size());
+						
+						for (Word word : mention.getWordList()) {
+							out.writeInt(word == null ? -1 : positions.get(word));
+						}
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+		
+		if (file.exists() && ! file.delete() || ! tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Couldn't replace " + file);
+		}
+	}
+	
+	/**
+	 * Adds a string to the string table.
+	 * 
+	 * @param strings The string table.
+	 * @param string The string to be added (null is ignored).
+	 * @return Index of the string or -1 for null.
+	 */
+	private static int addString(Map<String, Integer> strings, String string) {
+		if (string == null) {
+			return -1;
+		}
+		if (! strings.containsKey(string)) {
+			strings.put(string, strings.size());
+		}
+		return strings.get(string);
+	}
+	
+	/**
+	 * Looks up a string in the string table.
+	 * 
+	 * @param strings The string table.
+	 * @param index Index of the string (-1 for null).
+	 * @return The string.
+	 */
+	private static String getString(String[] strings, int index) {
+		return (index < 0) ? null : strings[index];
+	}
+	
+	/**
+	 * Writes a string in UTF-8 preceded by its length.
+	 * 
+	 * @param out The output stream.
+	 * @param string The string to be written.
+	 * @throws IOException If the string couldn't be written.
+	 */
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(UTF8);
+		
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @return The string.
+	 */
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+	
+	/**
+	 * Returns the length of a source file (0 for directories).
+	 * 
+	 * @param file The source file.
+	 * @return The length of the file.
+	 */
+	private static long getLength(File file) {
+		return file.isDirectory() ? 0 : file.length();
+	}
+	
+	/**
+	 * Getter for the words file of the MMAX-file.
+	 * 
+	 * @return Path to the words file.
+	 */
+	public String getWordFileName() { return this.wordFileName; }
+	
+	/**
+	 * Getter for the basedata directory of the MMAX-file.
+	 * 
+	 * @return Path to the basedata directory.
+	 */
+	public String getBasedataPath() { return this.basedataPath; }
+	
+	/**
+	 * Getter for the sorted list of words.
+	 * 
+	 * @return Sorted list of words.
+	 */
+	public List<Word> getWordList() { return this.wordList; }
+	
+	/**
+	 * Getter for the tags of each word for the {@link MMAXParser#ANNOTATION_LEVELS}.
+	 * 
+	 * @return Tags indexed by word position (null for levels which don't exist). 
+	 */
+	public Map<String, String[]> getMarkableTags() { return this.markableTags; }
+	
+	/**
+	 * Checks whether the snapshot contains the entities of a coreference level.
+	 * 
+	 * @param level Name of the coreference level.
+	 * @return true if the entities are stored in the snapshot.
+	 */
+	public boolean hasEntities(String level) { return this.entityIds.containsKey(level); }
+	
+	/**
+	 * Creates the {@link Entity}s of a coreference level. The mentions refer to the words of
+	 * {@link #getWordList()}.
+	 * 
+	 * @param level Name of the coreference level.
+	 * @return New list of {@link Entity}s.
+	 */
+	public List<Entity> getEntities(String level) {
+		List<Entity> entities = new ArrayList<Entity>();
+		String[] ids = this.entityIds.get(level);
+		
+		for (int e = 0; e < ids.length; e++) {
+			Entity entity = new Entity(ids[e]);
+			
+			for (int m = 0; m < this.mentionTypes.get(level)[e].length; m++) {
+				Mention mention = new Mention();
+				mention.setType(this.mentionTypes.get(level)[e][m]);
+				
+				for (int position : this.mentionWords.get(level)[e][m]) {
+					mention.addWord(position < 0 ? null : this.wordList.get(position));
+				}
+				entity.addMention(mention);
+			}
+			entities.add(entity);
+		}
+		return entities;
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.util
+ * class: DocumentIndex
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.uniheidelberg.cl.swp.datastructure.Word;
+
+
+/**
+ * Per-document lookup index for the markable levels used by the feature extractors.
+ * <br>
+ * <p>Every word of the document is mapped to an int ordinal (its position within the sorted word
+ * list of the {@link MMAXParser}). The sentence ID and the POS, deprel and enamex tags are stored
+ * in primitive arrays indexed by that ordinal, the tags as codes into a small table of distinct
+ * tags. The index is built once per document, see {@link MMAXParser#getDocumentIndex()}.</p>
+ */
+public class DocumentIndex {
+	private final Map<String, Integer> ordinals;
+	private final int size;
+	
+	/**
+	 * Sentence ID of each word and the first/last ordinal of its sentence (-1 = no sentence).
+	 */
+	private final int[] sentences;
+	private final int[] sentenceStarts;
+	private final int[] sentenceEnds;
+	
+	/**
+	 * Tag codes of each word (-1 = no tag) and the tables the codes refer to.
+	 */
+	private final int[] posCodes;
+	private final int[] deprelCodes;
+	private final int[] enamexCodes;
+	private final String[] posTags;
+	private final String[] deprelTags;
+	private final String[] enamexTags;
+	
+	/**
+	 * The markable levels which exist in the document, even if no word is tagged.
+	 */
+	private final Set<String> levels = new HashSet<String>();
+	
+	/**
+	 * The missing markable levels which have already been reported.
+	 */
+	private final Set<String> reportedLevels = new HashSet<String>();
+	
+	/**
+	 * Builds the index from the markable tags of a document.
+	 * 
+	 * @param mmax The document.
+	 */
+	DocumentIndex(MMAXParser mmax) {
+		this.size = mmax.getWordList().size();
+		this.ordinals = new HashMap<String, Integer>(size * 2);
+		
+		for (Word word : mmax.getWordList()) {
+			ordinals.put(word.getXmlId(), word.getOrdinal());
+		}
+		
+		for (String level : MMAXParser.ANNOTATION_LEVELS) {
+			if (mmax.getMarkableTags(level) != null) levels.add(level);
+		}
+		
+		List<String> table = new ArrayList<String>();
+		this.posCodes = encode(mmax.getMarkableTags("pos"), table);
+		this.posTags = table.toArray(new String[table.size()]);
+		
+		table.clear();
+		this.deprelCodes = encode(mmax.getMarkableTags("deprel"), table);
+		this.deprelTags = table.toArray(new String[table.size()]);
+		
+		table.clear();
+		this.enamexCodes = encode(mmax.getMarkableTags("enamex"), table);
+		this.enamexTags = table.toArray(new String[table.size()]);
+		
+		/* sentence IDs are numeric, a sentence consists of the neighboring words with the same ID */
+		String[] sentenceTags = mmax.getMarkableTags("sentence");
+		this.sentences = new int[size];
+		this.sentenceStarts = new int[size];
+		this.sentenceEnds = new int[size];
+		
+		for (int i = 0; i < size; i++) {
+			sentences[i] = -1;
+			
+			if (sentenceTags != null && sentenceTags[i] != null) {
+				try {
+					sentences[i] = Integer.parseInt(sentenceTags[i]);
+				} catch (NumberFormatException e) {
+					sentences[i] = -1;
+				}
+			}
+		}
+		
+		for (int start = 0; start < size; ) {
+			int end = start;
+			
+			while (end + 1 < size && sentences[end + 1] == sentences[start]) { end++; }
+			
+			for (int i = start; i <= end; i++) {
+				sentenceStarts[i] = sentences[i] < 0 ? -1 : start;
+				sentenceEnds[i] = sentences[i] < 0 ? -1 : end;
+			}
+			start = end + 1;
+		}
+	}
+	
+	/**
+	 * Replaces the tags of a level by codes into a table of distinct tags.
+	 * 
+	 * @param tags Tags indexed by ordinal or null if the level doesn't exist.
+	 * @param table Receives the distinct tags.
+	 * @return Tag code of each word.
+	 */
+	private int[] encode(String[] tags, List<String> table) {
+		int[] codes = new int[size];
+		Map<String, Integer> tableIndex = new HashMap<String, Integer>();
+		
+		for (int i = 0; i < size; i++) {
+			if (tags == null || tags[i] == null) {
+				codes[i] = -1;
+				continue;
+			}
+			Integer code = tableIndex.get(tags[i]);
+			
+			if (code == null) {
+				code = table.size();
+				tableIndex.put(tags[i], code);
+				table.add(tags[i]);
+			}
+			codes[i] = code;
+		}
+		return codes;
+	}
+	
+	/**
+	 * Returns the number of words in the document.
+	 * 
+	 * @return Number of words.
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Returns the ordinal of a word.
+	 * 
+	 * @param wordId ID of the word.
+	 * @return The ordinal or -1 if there's no word with this ID.
+	 */
+	public int getOrdinal(String wordId) {
+		Integer ordinal = this.ordinals.get(wordId);
+		
+		return (ordinal == null) ? -1 : ordinal;
+	}
+	
+	/**
+	 * Returns the ordinal of a word, which is looked up by its ID if it hasn't been assigned (e.g.
+	 * for words created by an ACR system).
+	 * 
+	 * @param word The word.
+	 * @return The ordinal or -1 if the word isn't part of the document.
+	 */
+	public int getOrdinal(Word word) {
+		return (word.getOrdinal() >= 0) ? word.getOrdinal() : getOrdinal(word.getXmlId());
+	}
+	
+	/**
+	 * Returns the sentence ID of a word.
+	 * 
+	 * @param ordinal Ordinal of the word.
+	 * @return The sentence ID or -1 if the word isn't part of a sentence.
+	 */
+	public int getSentence(int ordinal) {
+		return this.sentences[ordinal];
+	}
+	
+	/**
+	 * Returns the ordinal of the first word of the sentence containing a word.
+	 * 
+	 * @param ordinal Ordinal of the word.
+	 * @return Ordinal of the first word or -1 if the word isn't part of a sentence.
+	 */
+	public int getSentenceStart(int ordinal) {
+		return this.sentenceStarts[ordinal];
+	}
+	
+	/**
+	 * Returns the ordinal of the last word of the sentence containing a word.
+	 * 
+	 * @param ordinal Ordinal of the word.
+	 * @return Ordinal of the last word or -1 if the word isn't part of a sentence.
+	 */
+	public int getSentenceEnd(int ordinal) {
+		return this.sentenceEnds[ordinal];
+	}
+	
+	/**
+	 * Checks whether the document is annotated with a markable level. A level exists even if no
+	 * word has a tag of that level, e.g. an enamex level of a document without named entities.
+	 * 
+	 * @param level One of the {@link MMAXParser#ANNOTATION_LEVELS}.
+	 * @return true if the level exists.
+	 * @throws IllegalArgumentException If the level isn't indexed.
+	 */
+	public boolean hasLevel(String level) {
+		if (! Arrays.asList(MMAXParser.ANNOTATION_LEVELS).contains(level)) {
+			throw new IllegalArgumentException("Unknown markable level " + level);
+		}
+		return this.levels.contains(level);
+	}
+	
+	/**
+	 * Marks a missing markable level as reported, so that it is only reported once per document
+	 * by all extractions sharing this index.
+	 * 
+	 * @param level The missing markable level.
+	 * @return true if the level hasn't been reported before.
+	 */
+	public synchronized boolean markReported(String level) {
+		return this.reportedLevels.add(level);
+	}
+	
+	/**
+	 * Returns the POS tag of a word.
+	 * 
+	 * @param ordinal Ordinal of the word.
+	 * @return The POS tag or null if the word has none.
+	 */
+	public String getPosTag(int ordinal) {
+		return this.posCodes[ordinal] < 0 ? null : this.posTags[this.posCodes[ordinal]];
+	}
+	
+	/**
+	 * Returns the dependency relation of a word.
+	 * 
+	 * @param ordinal Ordinal of the word.
+	 * @return The deprel tag or null if the word has none.
+	 */
+	public String getDeprelTag(int ordinal) {
+		return this.deprelCodes[ordinal] < 0 ? null : this.deprelTags[this.deprelCodes[ordinal]];
+	}
+	
+	/**
+	 * Returns the named entity tag of a word.
+	 * 
+	 * @param ordinal Ordinal of the word.
+	 * @return The enamex tag or null if the word isn't part of a named entity.
+	 */
+	public String getEnamexTag(int ordinal) {
+		return this.enamexCodes[ordinal] < 0 ? null : this.enamexTags[this.enamexCodes[ordinal]];
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.util
+ * class: DocumentText
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.util;
+
+import java.util.List;
+
+import de.uniheidelberg.cl.swp.datastructure.Word;
+
+
+/**
+ * Plain text view of a document which maps character offsets back to the {@link Word}s.
+ * <br>
+ * <p>The text is built once in a single buffer: every token is preceded by a blank, except for
+ * punctuation. This is the text returned by {@link MMAXParser#getPlainTextAsString()}; the start
+ * offset of each token equals the absolute position of its word + 1. The start offsets are kept
+ * in a sorted array, so a word is found by binary search.</p>
+ */
+public class DocumentText {
+	private final String text;
+	private final Word[] words;
+	
+	/**
+	 * Start offset of each word's token within the text (ascending).
+	 */
+	private final int[] starts;
+	
+	/**
+	 * Builds the text for the sorted word list of a document.
+	 * 
+	 * @param wordList The sorted list of words.
+	 */
+	public DocumentText(List<Word> wordList) {
+		StringBuilder sb = new StringBuilder();
+		
+		this.words = wordList.toArray(new Word[wordList.size()]);
+		this.starts = new int[words.length];
+		
+		for (int i = 0; i < words.length; i++) {
+			String token = words[i].getToken();
+			
+			if (! token.matches("\\p{Punct}")) {
+				sb.append(' ');
+			}
+			starts[i] = sb.length();
+			sb.append(token);
+		}
+		this.text = sb.toString();
+	}
+	
+	/**
+	 * Getter for the text.
+	 * 
+	 * @return The plain text of the document.
+	 */
+	public String getText() {
+		return this.text;
+	}
+	
+	/**
+	 * Returns the word whose token starts at the given offset.
+	 * 
+	 * @param offset Character offset within the text.
+	 * @return The first word starting at the offset or null if no token starts there.
+	 */
+	public Word getWordAt(int offset) {
+		int i = firstIndex(offset);
+		
+		return (i < starts.length && starts[i] == offset) ? words[i] : null;
+	}
+	
+	/**
+	 * Returns the position of a word within the word list of the document.
+	 * 
+	 * @param word The word.
+	 * @return The position or -1 if the word isn't part of the document.
+	 */
+	public int indexOf(Word word) {
+		for (int i = firstIndex(word.getAbsolutePosition() + 1); i < starts.length &&
+				starts[i] == word.getAbsolutePosition() + 1; i++) {
+			if (words[i] == word) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Binary search for the first word whose start offset is not smaller than the given offset.
+	 * 
+	 * @param offset Character offset within the text.
+	 * @return Index of the word or the number of words if there is none.
+	 */
+	private int firstIndex(int offset) {
+		int low = 0;
+		int high = starts.length;
+		
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			
+			if (starts[mid] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
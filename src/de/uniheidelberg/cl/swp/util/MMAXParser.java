@@ -27,6 +27,8 @@
  */
 package de.uniheidelberg.cl.swp.util;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -46,15 +48,51 @@ import de.uniheidelberg.cl.swp.io.Logging;
 /**
  * This class handles MMAX annotated files and provides methods to extract the token and annotated
  * information associated with the MMAX-file.
+ * <br>
+ * <p>If a fresh {@link CorpusSnapshot} exists for the MMAX-file, the words, markable tags and
+ * entities are loaded from it and the MMAX-Discourse is only built if it is explicitly
+ * requested.</p>
+ * <p>If the {@link MMAXStreamReader} is enabled, the words and markable files are read by it
+ * instead of MMAX2.</p>
  */
 public class MMAXParser {
+	/**
+	 * The markable levels whose tags are used during feature extraction.
+	 */
+	public static final String[] ANNOTATION_LEVELS = {"sentence", "pos", "deprel", "enamex"};
+	
+	/**
+	 * The markable levels containing coreference chains (gold standard and BART).
+	 */
+	public static final String[] COREF_LEVELS = {"coref", "response"};
+	
+	/**
+	 * Lock for building MMAX-Discourses. The MMAX2 loader keeps the discourse it is building in a
+	 * static field, so only one discourse may be built at a time.
+	 */
+	private static final Object DISCOURSE_LOCK = new Object();
+	
 	/**
 	 * The filename for the MMAX-file. 
 	 */
 	private String fileName;
 
+	/**
+	 * The MMAX-Discourse, built on first access.
+	 */
 	private MMAX2Discourse discourse;
 	
+	/**
+	 * The snapshot this parser has been loaded from or null if it has been built from the
+	 * MMAX-file itself.
+	 */
+	private CorpusSnapshot snapshot;
+	
+	/**
+	 * The streaming reader for the MMAX-file, created on first access if it is enabled.
+	 */
+	private MMAXStreamReader reader;
+	
 	/**
 	 * Contains all the words combined with their unique ID.
 	 */
@@ -62,13 +100,40 @@ public class MMAXParser {
 	
 	private List<Word> wordList;
 	
+	/**
+	 * Contains the position of each word within the sorted word list combined with its ID.
+	 */
+	private Map<String, Integer> wordPositions;
+	
+	/**
+	 * Contains the tag of every word for each markable level (indexed by word position). A
+	 * level which doesn't exist in the MMAX-file is mapped to null.
+	 */
+	private Map<String, String[]> markableTags;
+	
+	/**
+	 * Lookup index for the feature extractors, built on first access.
+	 */
+	private DocumentIndex documentIndex;
+	
+	/**
+	 * Plain text view of the document, built on first access.
+	 */
+	private DocumentText documentText;
+	
 	/**
 	 * List of entities extracted from coref/response level.
 	 */
 	private List<Entity> entityList;
 	
 	/**
-	 * List of {@link CoreferencePair}s extracted from the corpus.
+	 * List of entities extracted from the coref level (gold standard).
+	 */
+	private List<Entity> goldEntities;
+	
+	/**
+	 * List of {@link CoreferencePair}s of the gold standard, split from the chains on first
+	 * access.
 	 */
 	private List<CoreferencePair> corefPairs;
 	
@@ -79,21 +144,104 @@ public class MMAXParser {
 	 */
 	public MMAXParser(String fileName) {
 		this.fileName = fileName;
-		this.discourse  = MMAX2Discourse.buildDiscourse(this.fileName);
 		this.wordMap = new HashMap<String,Word>();
+		this.wordPositions = new HashMap<String,Integer>();
+		this.markableTags = new HashMap<String,String[]>();
 		this.entityList = new ArrayList<Entity>();
 		this.wordList = new ArrayList<Word>();
 	}
 	
+	/**
+	 * Initializes the parser with the words and markable tags stored in a {@link CorpusSnapshot}.
+	 * 
+	 * @param fileName Path to an MMAX-file.
+	 * @param snapshot Snapshot of the MMAX-file.
+	 */
+	private MMAXParser(String fileName, CorpusSnapshot snapshot) {
+		this(fileName);
+		this.snapshot = snapshot;
+		this.wordList.addAll(snapshot.getWordList());
+		
+		for (int i = 0; i < wordList.size(); i++) {
+			wordList.get(i).setOrdinal(i);
+			wordMap.put(wordList.get(i).getXmlId(), wordList.get(i));
+			wordPositions.put(wordList.get(i).getXmlId(), i);
+		}
+		this.markableTags.putAll(snapshot.getMarkableTags());
+	}
+	
+	/**
+	 * Getter for the filename of the MMAX-file.
+	 * 
+	 * @return Path to the MMAX-file.
+	 */
+	public String getFileName() {
+		return this.fileName;
+	}
+	
 	/**
 	 * Getter for the MMAX-Discourse object.
+	 * <br>
+	 * The discourse is built on first access, which is expensive. Prefer the other getters of this
+	 * class if they provide the information needed.
 	 * 
 	 * @return MMAX-Discourse object.
 	 */
-	public MMAX2Discourse getDiscourse() {
+	public synchronized MMAX2Discourse getDiscourse() {
+		if (this.discourse == null) {
+			synchronized (DISCOURSE_LOCK) {
+				this.discourse = MMAX2Discourse.buildDiscourse(this.fileName);
+			}
+		}
 		return this.discourse;
 	}
 	
+	/**
+	 * Returns the {@link MMAXStreamReader} for the MMAX-file.
+	 * 
+	 * @return The reader or null if the streaming reader is disabled.
+	 */
+	private MMAXStreamReader getReader() {
+		if (this.reader == null && MMAXStreamReader.isEnabled()) {
+			try {
+				this.reader = new MMAXStreamReader(this.fileName);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Couldn't read " + this.fileName, e);
+			}
+		}
+		return this.reader;
+	}
+	
+	/**
+	 * Getter for the path to the words file (basedata) of the MMAX-file.
+	 * 
+	 * @return Path to the words file.
+	 */
+	public String getWordFileName() {
+		if (this.snapshot != null) {
+			return this.snapshot.getWordFileName();
+		}
+		if (getReader() != null) {
+			return getReader().getWordFileName();
+		}
+		return getDiscourse().getWordFileName();
+	}
+	
+	/**
+	 * Getter for the basedata directory of the MMAX-file.
+	 * 
+	 * @return Path to the basedata directory.
+	 */
+	public String getBasedataPath() {
+		if (this.snapshot != null) {
+			return this.snapshot.getBasedataPath();
+		}
+		if (getReader() != null) {
+			return getReader().getBasedataPath();
+		}
+		return getDiscourse().getCommonBasedataPath();
+	}
+	
 	/**
 	 * Getter for wordMap.
 	 * 
@@ -111,6 +259,17 @@ public class MMAXParser {
 		return this.entityList;
 	}
 	
+	/**
+	 * Getter for the entities of the gold standard.
+	 * <br>
+	 * Unlike {@link #getEntityList()} these aren't replaced when another level is extracted.
+	 * 
+	 * @return The list of {@link Entity}s of the coref level.
+	 */
+	public List<Entity> getGoldEntities() {
+		return this.goldEntities;
+	}
+	
 	/**
 	 * Returns a sorted list of words.
 	 * 
@@ -120,12 +279,31 @@ public class MMAXParser {
 		return this.wordList;
 	}
 	
+	/**
+	 * Returns the position of a word within the sorted list of words.
+	 * 
+	 * @param wordId ID of the word.
+	 * @return Position of the word or -1 if there's no word with this ID.
+	 */
+	public int getWordPosition(String wordId) {
+		Integer position = this.wordPositions.get(wordId);
+		
+		return (position == null) ? -1 : position;
+	}
+	
 	/**
 	 * Getter for {@link CoreferencePair}s.
+	 * <br>
+	 * The pairs are only created on the first call, the training and the test process work on a
+	 * {@link de.uniheidelberg.cl.swp.datastructure.PairTable} of the {@link #getGoldEntities()}
+	 * instead.
 	 * 
 	 * @return List of {@link CoreferencePair}s extracted from the corpus.
 	 */
-	public List<CoreferencePair> getCorefPairs() {
+	public synchronized List<CoreferencePair> getCorefPairs() {
+		if (corefPairs == null && goldEntities != null) {
+			corefPairs = splitCorefChainsToPairs(goldEntities);
+		}
 		return corefPairs;
 	}
 	
@@ -134,8 +312,21 @@ public class MMAXParser {
 	 * together with their ID as key.
 	 */
 	private void extractToken() {
-		/* words in the base-data file. */
-		MMAX2DiscourseElement[] discourseElements = discourse.getDiscourseElements();
+		/* ID and string of the words in the base-data file. */
+		List<String[]> discourseElements = new ArrayList<String[]>();
+		
+		if (getReader() != null) {
+			try {
+				discourseElements = getReader().readWords();
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Couldn't read the words of " + this.fileName,
+						e);
+			}
+		} else {
+			for (MMAX2DiscourseElement element : getDiscourse().getDiscourseElements()) {
+				discourseElements.add(new String[] {element.getID(), element.toString()});
+			}
+		}
 		
 		/* 
 		 * counter to remember the current position within the document used to determine absoulte
@@ -144,15 +335,14 @@ public class MMAXParser {
 		int absolutePosition = 0;
 		
 		/* try to roughly specify word and sentence position by regex sentence-splitting */
-		for (int i = 0; i < discourseElements.length; i++) {
+		for (String[] discourseElement : discourseElements) {
 			/* remove brackets and - */
-			String token = discourseElements[i].toString().replaceAll("[\\[\\]\\(\\)\\-\\_\"]",
-					"");
+			String token = discourseElement[1].replaceAll("[\\[\\]\\(\\)\\-\\_\"]", "");
 
 			if (token.matches("\\p{Punct}")) {
 				absolutePosition -= 1;
 			}
-			String id = discourseElements[i].getID().toString();
+			String id = discourseElement[0];
 
 			/* create a new Word object with the relative positions */
 			Word curWord = new Word(token, "", id);
@@ -167,17 +357,20 @@ public class MMAXParser {
 			absolutePosition += token.length() + 1;			
 		}
 		Collections.sort(wordList);
+		
+		/* the position within the sorted list is the ordinal of the word */
+		for (int i = 0; i < wordList.size(); i++) {
+			wordList.get(i).setOrdinal(i);
+			wordPositions.put(wordList.get(i).getXmlId(), i);
+		}
 	}
 	
 	/**
 	 * Extracts the coreferences from MMAX annotation and maps them to the words already extracted.
 	 * 
 	 * @param annotationLevel Level which is used for extraction.
-	 * @return List of {@link CoreferencePair}s which have been extracted.
 	 */
-	@SuppressWarnings("unchecked")
-	public List<CoreferencePair> extractCorefs(String annotationLevel) {
-		Map<String, Entity> entityMap = new HashMap<String, Entity>();
+	public void extractCorefs(String annotationLevel) {
 		this.entityList.clear();
 		
 		/* Check whether words have already been extracted */
@@ -185,44 +378,256 @@ public class MMAXParser {
 			this.extractToken();
 		}
 		
+		List<Entity> entities = getEntities(annotationLevel);
+		
+		if (entities == null) {
+			throw new IllegalArgumentException("No markable level " + annotationLevel + 
+					" found in " + this.fileName);
+		}
+		this.entityList.addAll(entities);
+
+		/* If we parse an MMAX file (gold standard), keep the chains, which are split into pairs
+		 * on demand. This must not be done for BART. */
+		if (annotationLevel.equals("coref")) {
+			this.goldEntities = new ArrayList<Entity>(entityList);
+			this.corefPairs = null;
+		}
+	}
+	
+	/**
+	 * Creates the {@link Entity}s of a coreference level, either from the snapshot or from the
+	 * MMAX annotation.
+	 * 
+	 * @param annotationLevel Level which is used for extraction.
+	 * @return List of {@link Entity}s or null if the level doesn't exist.
+	 */
+	@SuppressWarnings("unchecked")
+	List<Entity> getEntities(String annotationLevel) {
+		if (this.snapshot != null && this.snapshot.hasEntities(annotationLevel)) {
+			return this.snapshot.getEntities(annotationLevel);
+		}
+		final Map<String, Entity> entityMap = new HashMap<String, Entity>();
+		
+		if (getReader() != null) {
+			boolean found;
+			
+			try {
+				found = getReader().readMarkables(annotationLevel,
+						new MMAXStreamReader.MarkableHandler() {
+					@Override
+					public void markable(String[] wordIds, Map<String, String> attributes) {
+						addMention(entityMap, attributes.get("coref_set"), attributes.get("mtype"),
+								wordIds);
+					}
+				});
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Couldn't read level " + annotationLevel +
+						" of " + this.fileName, e);
+			}
+			return found ? new ArrayList<Entity>(entityMap.values()) : null;
+		}
+		
 		/* Access the annotation level */
-		MarkableLevel corefLevel = discourse.getMarkableLevelByName(annotationLevel,false);
+		MarkableLevel corefLevel = getDiscourse().getMarkableLevelByName(annotationLevel,false);
+		
+		if (corefLevel == null) {
+			return null;
+		}
 
 		/* Access Markables */ 
 		ArrayList<Markable> mList = corefLevel.getMarkables();
 
 		/* extract all coref-sets */
 		for (Markable corefMarkable : mList) {
-			String corefSet = corefMarkable.getAttributeValue("coref_set");
+			addMention(entityMap, corefMarkable.getAttributeValue("coref_set"),
+					corefMarkable.getAttributeValue("mtype"),
+					corefMarkable.getDiscourseElementIDs());
+		}
+		return new ArrayList<Entity>(entityMap.values());
+	}
+	
+	/**
+	 * Appends a coreference markable as a {@link Mention} to its {@link Entity}.
+	 * 
+	 * @param entityMap Mapping between coref-sets and their entities.
+	 * @param corefSet The coref-set of the markable.
+	 * @param type The mention type of the markable.
+	 * @param wordIDs The IDs of the words covered by the markable.
+	 */
+	private void addMention(Map<String, Entity> entityMap, String corefSet, String type,
+			String[] wordIDs) {
+		if (! entityMap.containsKey(corefSet)) {
+			entityMap.put(corefSet, new Entity(corefSet));
+		}
+		/* append the current markable as a mention to the entity */
+		Mention newMention = new Mention();
+		
+		newMention.setType(type);
+		List<Word> mentionWords = new ArrayList<Word>();
+		
+		for (int i = 0; i < wordIDs.length; i++) {
+			mentionWords.add(this.wordMap.get(wordIDs[i]));
+		}
+		
+		/* add all the words to the mention */
+		newMention.setWordList(mentionWords);
+		
+		/* add mentions to the entity */
+		entityMap.get(corefSet).addMention(newMention);
+	}
+	
+	/**
+	 * Returns the tag of a word on the specified markable level (the "orderId" for the sentence
+	 * level, the "tag" attribute otherwise). If several markables of the level contain the word,
+	 * the tag of the first one is returned.
+	 * 
+	 * @param level Name of the markable level, one of {@link #ANNOTATION_LEVELS}.
+	 * @param wordId ID of the word.
+	 * @return The tag or null if the level doesn't exist or no markable contains the word.
+	 */
+	public String getMarkableTag(String level, String wordId) {
+		String[] tags = getMarkableTags(level);
+		int position = getWordPosition(wordId);
+		
+		if (tags == null || position < 0) {
+			return null;
+		}
+		return tags[position];
+	}
+	
+	/**
+	 * Returns the {@link DocumentIndex} of the document, which is built once on first access.
+	 * 
+	 * @return The lookup index for the markable levels.
+	 */
+	public synchronized DocumentIndex getDocumentIndex() {
+		if (this.documentIndex == null) {
+			this.documentIndex = new DocumentIndex(this);
+		}
+		return this.documentIndex;
+	}
+	
+	/**
+	 * Returns the tags of all words on the specified markable level, see
+	 * {@link #getMarkableTag(String, String)}.
+	 * 
+	 * @param level Name of the markable level.
+	 * @return Tags indexed by word position or null if the level doesn't exist.
+	 */
+	public String[] getMarkableTags(String level) {
+		if (! this.markableTags.containsKey(level)) {
+			this.markableTags.put(level, extractMarkableTags(level));
+		}
+		return this.markableTags.get(level);
+	}
+	
+	/**
+	 * Collects the tags of all words for a markable level from the MMAX annotation.
+	 * 
+	 * @param level Name of the markable level.
+	 * @return Tags indexed by word position or null if the level doesn't exist.
+	 */
+	@SuppressWarnings("unchecked")
+	private String[] extractMarkableTags(String level) {
+		if (this.wordMap.size() < 1) {
+			this.extractToken();
+		}
+		final String attribute = level.equals("sentence") ? "orderId" : "tag";
+		final String[] tags = new String[this.wordList.size()];
+		
+		if (getReader() != null) {
+			boolean found;
 			
-			if (! entityMap.containsKey(corefSet)) {
-				entityMap.put(corefSet, new Entity(corefSet));
+			try {
+				found = getReader().readMarkables(level, new MMAXStreamReader.MarkableHandler() {
+					@Override
+					public void markable(String[] wordIds, Map<String, String> attributes) {
+						addMarkableTag(tags, attributes.get(attribute.toLowerCase()), wordIds);
+					}
+				});
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Couldn't read level " + level + " of " +
+						this.fileName, e);
 			}
-			/* append the current markable as a mention to the entity */
-			Mention newMention = new Mention();
-			
-			newMention.setType(corefMarkable.getAttributeValue("mtype"));
-			String[] wordIDs = corefMarkable.getDiscourseElementIDs();
-			List<Word> mentionWords = new ArrayList<Word>();
+			return found ? tags : null;
+		}
+		MarkableLevel markableLevel = getDiscourse().getMarkableLevelByName(level, false);
+		
+		if (markableLevel == null) {
+			return null;
+		}
+		
+		for (Markable markable : (ArrayList<Markable>) markableLevel.getMarkables()) {
+			addMarkableTag(tags, markable.getAttributeValue(attribute),
+					markable.getDiscourseElementIDs());
+		}
+		return tags;
+	}
+	
+	/**
+	 * Assigns the tag of a markable to the words it covers.
+	 * 
+	 * @param tags Tags indexed by word position.
+	 * @param tag The tag of the markable.
+	 * @param wordIDs The IDs of the words covered by the markable.
+	 */
+	private void addMarkableTag(String[] tags, String tag, String[] wordIDs) {
+		for (String id : wordIDs) {
+			int position = getWordPosition(id);
 			
-			for (int i = 0; i < wordIDs.length; i++) {
-				mentionWords.add(this.wordMap.get(wordIDs[i]));
+			/* the first markable at a word wins */
+			if (position >= 0 && tags[position] == null) {
+				tags[position] = tag;
 			}
+		}
+	}
+	
+	/**
+	 * Returns the files the MMAX annotation is read from: the MMAX-file, the words file and the
+	 * markable files (and their directories) of the levels used by this project.
+	 * 
+	 * @return List of paths.
+	 */
+	List<String> getSourceFiles() {
+		List<String> sources = new ArrayList<String>();
+		
+		sources.add(new File(this.fileName).getAbsolutePath());
+		sources.add(new File(getWordFileName()).getAbsolutePath());
+		
+		List<String> levels = new ArrayList<String>();
+		Collections.addAll(levels, ANNOTATION_LEVELS);
+		Collections.addAll(levels, COREF_LEVELS);
+		
+		for (String level : levels) {
+			String markableFileName = getMarkableFileName(level);
 			
-			/* add all the words to the mention */
-			newMention.setWordList(mentionWords);
+			if (markableFileName == null) {
+				continue;
+			}
+			File markableFile = new File(markableFileName).getAbsoluteFile();
 			
-			/* add mentions to the entity */
-			entityMap.get(corefSet).addMention(newMention);
+			/* the directory is added as well to notice newly created markable files */
+			if (! sources.contains(markableFile.getParentFile().getAbsolutePath())) {
+				sources.add(markableFile.getParentFile().getAbsolutePath());
+			}
+			sources.add(markableFile.getAbsolutePath());
 		}
-		this.entityList.addAll(entityMap.values());
-
-		/* If we parse an MMAX file (gold standard), split the chains into pairs. This must not
-		 * be done for BART. */
-		if (annotationLevel.equals("coref"))
-				this.corefPairs = splitCorefChainsToPairs(entityList);
+		return sources;
+	}
+	
+	/**
+	 * Returns the markable file of a level.
+	 * 
+	 * @param level Name of the markable level.
+	 * @return Path to the markable file or null if the level doesn't exist.
+	 */
+	private String getMarkableFileName(String level) {
+		if (getReader() != null) {
+			return getReader().getMarkableFileName(level);
+		}
+		MarkableLevel markableLevel = getDiscourse().getMarkableLevelByName(level, false);
 		
-		return corefPairs;
+		return (markableLevel == null) ? null : markableLevel.getAbsoluteMarkableFileName();
 	}
 	
 	/**
@@ -255,35 +660,61 @@ public class MMAXParser {
 	
 	/**
 	 * Loads a new MMAXParser and extracts the token and correct {@link CoreferencePair}s from it.
+	 * <br>
+	 * A fresh {@link CorpusSnapshot} of the file is used instead of the MMAX annotation, if there
+	 * is one. Otherwise the snapshot is (re-)written after the file has been parsed.
 	 * 
 	 * @param mmaxFileName MMAX file to be loaded.
 	 * @return Number of raw words in the text.
 	 */
 	public static  MMAXParser processMMAXFile(String mmaxFileName) {
+		if (CorpusSnapshot.isEnabled()) {
+			CorpusSnapshot snapshot = CorpusSnapshot.load(mmaxFileName);
+			
+			if (snapshot != null) {
+				Logging.getInstance().getLogger().info("Loading snapshot of " + mmaxFileName);
+				MMAXParser mmaxParser = new MMAXParser(mmaxFileName, snapshot);
+				mmaxParser.extractCorefs("coref");
+				
+				return mmaxParser;
+			}
+		}
 		MMAXParser mmaxParser = new MMAXParser(mmaxFileName);
 		Logging.getInstance().getLogger().info("Extracting raw words from " + mmaxFileName);
 		mmaxParser.extractToken();
 		mmaxParser.extractCorefs("coref");
 		
+		if (CorpusSnapshot.isEnabled()) {
+			try {
+				CorpusSnapshot.write(mmaxParser);
+			} catch (IOException e) {
+				Logging.getInstance().getLogger().warning("Couldn't write snapshot of " +
+						mmaxFileName + ": " + e.getMessage());
+			}
+		}
 		return mmaxParser;
 	}
 
+	/**
+	 * Returns the {@link DocumentText} of the document, which is built once on first access.
+	 * 
+	 * @return The plain text view of the document.
+	 */
+	public synchronized DocumentText getDocumentText() {
+		if (this.documentText == null) {
+			this.documentText = new DocumentText(this.wordList);
+		}
+		return this.documentText;
+	}
+
 	/**
 	 * Returns the plaintext as a concatenated string which handles punctuation correctly.
+	 * <br>
+	 * Brackets are not part of the text since they have already been removed from the tokens.
 	 * 
 	 * @return Concatenated string containing all the text.
 	 */
 	public String getPlainTextAsString() {
-		String textString = "";
-		
-		for (Word w : this.getWordList()) {
-			if (w.getToken().matches("\\p{Punct}"))
-				textString = textString + w.getToken();
-			else
-				textString = textString + " " + w.getToken();
-		}
-		textString = textString.replaceAll("[\\(\\)]", "");
-		
-		return textString;
+		return getDocumentText().getText();
 	}
 }
@@ -0,0 +1,568 @@
+/*
+ * ELAC: Ensemble Learning for Anaphora- and Coreference-Resolution-Systems
+ * package: de.uniheidelberg.cl.swp.util
+ * class: MMAXStreamReader
+ * 
+ * Authors: E-Mail
+ * Thomas Boegel: boegel@cl.uni-heidelberg.de
+ * Lukas Funk: funk@cl.uni-heidelberg.de
+ * Andreas Kull: kull@cl.uni-heidelberg.de
+ * 
+ * Please find a detailed explanation of this particular class/package and its role and usage at
+ * the first JavaDoc following this comment.
+ * 
+ * Copyright 2010 Thomas Boegel & Lukas Funk & Andreas Kull
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.uniheidelberg.cl.swp.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.uniheidelberg.cl.swp.io.Configuration;
+
+
+/**
+ * Reads the words and markable files of an MMAX-file without building the MMAX-Discourse.
+ * <br>
+ * <p>The files are memory-mapped and scanned element by element, so neither a DOM nor the
+ * GUI-related structures of MMAX2 are created. Paths are resolved the same way MMAX2 does it: the
+ * basedata and markable paths are read from the common_paths.xml next to the MMAX-file, the
+ * markable files from its &lt;annotations&gt; (with $ replaced by the name of the MMAX-file) or
+ * from the MMAX-file itself. Like MMAX2, attribute names and values of markables are
+ * lower-cased.</p>
+ * <br>
+ * <p>The reader is switched on by the "StreamingMMAXReader" entry in the
+ * {@link Configuration}.</p>
+ */
+public class MMAXStreamReader {
+	private static final String COMMON_PATHS_FILE = "common_paths.xml";
+	private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([^\"']+)");
+	
+	private String mmaxFileName;
+	private String basedataPath;
+	private String markablePath;
+	private String wordFileName;
+	
+	/**
+	 * Contains the markable file of each level combined with the level's name.
+	 */
+	private Map<String, String> markableFileNames;
+	
+	/**
+	 * Contains the position of each word in the words file combined with its ID, used to expand
+	 * markable spans.
+	 */
+	private Map<String, Integer> wordPositions;
+	private List<String> wordIds;
+	
+	/**
+	 * Receives the markables of a markable file.
+	 */
+	public interface MarkableHandler {
+		/**
+		 * Called for each markable in the order of the markable file.
+		 * 
+		 * @param wordIds The IDs of all the words covered by the markable.
+		 * @param attributes Lower-cased attributes of the markable (without id and span).
+		 */
+		void markable(String[] wordIds, Map<String, String> attributes);
+	}
+	
+	/**
+	 * Checks whether the streaming reader is enabled by the {@link Configuration}.
+	 * 
+	 * @return true if MMAX-files should be read without MMAX2.
+	 */
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(
+				Configuration.getInstance().getProperties().getProperty("StreamingMMAXReader"));
+	}
+	
+	/**
+	 * Resolves the words and markable files of an MMAX-file.
+	 * 
+	 * @param mmaxFileName Path to the MMAX-file.
+	 * @throws IOException If the MMAX-file or the common_paths.xml couldn't be read.
+	 */
+	public MMAXStreamReader(String mmaxFileName) throws IOException {
+		this.mmaxFileName = mmaxFileName;
+		this.markableFileNames = new LinkedHashMap<String, String>();
+		
+		String rootPath = mmaxFileName.substring(0, mmaxFileName.lastIndexOf(File.separator) + 1);
+		String nameSpace = mmaxFileName.substring(rootPath.length());
+		
+		if (nameSpace.indexOf(".mmax") >= 0) {
+			nameSpace = nameSpace.substring(0, nameSpace.indexOf(".mmax"));
+		}
+		this.basedataPath = rootPath;
+		this.markablePath = rootPath;
+		
+		File commonPaths = new File(rootPath + COMMON_PATHS_FILE);
+		
+		if (commonPaths.exists()) {
+			XmlScanner scanner = new XmlScanner(commonPaths);
+			
+			while (scanner.nextElement()) {
+				if (scanner.getName().equals("basedata_path")) {
+					this.basedataPath = resolve(rootPath, scanner.readText());
+				} else if (scanner.getName().equals("markable_path")) {
+					this.markablePath = resolve(rootPath, scanner.readText());
+				} else if (scanner.getName().equals("level")) {
+					this.markableFileNames.put(scanner.getAttribute("name"),
+							resolve(this.markablePath, scanner.readText()).replace("$", nameSpace));
+				}
+			}
+		}
+		
+		/* the levels are only read from the MMAX-file if there are none in common_paths.xml */
+		boolean readLevels = this.markableFileNames.isEmpty();
+		XmlScanner scanner = new XmlScanner(new File(mmaxFileName));
+		
+		while (scanner.nextElement()) {
+			if (scanner.getName().equals("words")) {
+				this.wordFileName = this.basedataPath + scanner.readText();
+			} else if (readLevels && scanner.getName().equals("level")) {
+				this.markableFileNames.put(scanner.getAttribute("name"),
+						this.markablePath + scanner.readText());
+			}
+		}
+		
+		if (this.wordFileName == null) {
+			throw new IOException("No word file name given in " + mmaxFileName);
+		}
+	}
+	
+	/**
+	 * Prepends a directory to a path, unless the path is absolute.
+	 * 
+	 * @param directory The directory.
+	 * @param path The path.
+	 * @return The resolved path.
+	 */
+	private static String resolve(String directory, String path) {
+		return new File(path).isAbsolute() ? path : directory + path;
+	}
+	
+	/**
+	 * Getter for the path to the words file.
+	 * 
+	 * @return Path to the words file.
+	 */
+	public String getWordFileName() {
+		return this.wordFileName;
+	}
+	
+	/**
+	 * Getter for the basedata directory.
+	 * 
+	 * @return Path to the basedata directory.
+	 */
+	public String getBasedataPath() {
+		return this.basedataPath;
+	}
+	
+	/**
+	 * Returns the markable file of a level.
+	 * 
+	 * @param level Name of the markable level.
+	 * @return Path to the markable file or null if the MMAX-file has no such level.
+	 */
+	public String getMarkableFileName(String level) {
+		return this.markableFileNames.get(level);
+	}
+	
+	/**
+	 * Reads the words file.
+	 * 
+	 * @return ID and token of each word in the order of the words file.
+	 * @throws IOException If the words file couldn't be read.
+	 */
+	public List<String[]> readWords() throws IOException {
+		List<String[]> words = new ArrayList<String[]>();
+		XmlScanner scanner = new XmlScanner(new File(this.wordFileName));
+		
+		this.wordPositions = new HashMap<String, Integer>();
+		this.wordIds = new ArrayList<String>();
+		
+		while (scanner.nextElement()) {
+			if (scanner.getName().equals("word")) {
+				String id = scanner.getAttribute("id");
+				
+				this.wordPositions.put(id, this.wordIds.size());
+				this.wordIds.add(id);
+				words.add(new String[] {id, scanner.readText()});
+			}
+		}
+		return words;
+	}
+	
+	/**
+	 * Reads the markable file of a level and passes each markable to the handler. A level whose
+	 * markable file doesn't exist (yet) has no markables.
+	 * 
+	 * @param level Name of the markable level.
+	 * @param handler Receives the markables.
+	 * @return false if the MMAX-file has no such level.
+	 * @throws IOException If the words file or the markable file couldn't be read.
+	 */
+	public boolean readMarkables(String level, MarkableHandler handler) throws IOException {
+		String markableFileName = getMarkableFileName(level);
+		
+		if (markableFileName == null) {
+			return false;
+		}
+		File markableFile = new File(markableFileName);
+		
+		if (! markableFile.exists()) {
+			return true;
+		}
+		if (this.wordPositions == null) {
+			readWords();
+		}
+		XmlScanner scanner = new XmlScanner(markableFile);
+		
+		while (scanner.nextElement()) {
+			if (! scanner.getName().equals("markable")) {
+				continue;
+			}
+			String span = scanner.getAttribute("span");
+			Map<String, String> attributes = new HashMap<String, String>();
+			
+			for (Map.Entry<String, String> attribute : scanner.getAttributes().entrySet()) {
+				String name = attribute.getKey().toLowerCase();
+				
+				if (! name.equals("id") && ! name.equals("span")) {
+					attributes.put(name, attribute.getValue().toLowerCase());
+				}
+			}
+			handler.markable(parseSpan(span == null ? "" : span), attributes);
+		}
+		return true;
+	}
+	
+	/**
+	 * Expands a markable span (e.g. word_1..word_4,word_7) to the IDs of all the words it covers.
+	 * Ranges are expanded along the order of the words file.
+	 * 
+	 * @param span The span attribute of a markable.
+	 * @return The IDs of the words.
+	 */
+	private String[] parseSpan(String span) {
+		List<String> ids = new ArrayList<String>();
+		
+		for (String fragment : span.split(",")) {
+			fragment = fragment.trim();
+			int separator = fragment.indexOf("..");
+			
+			if (fragment.length() == 0) {
+				continue;
+			} else if (separator == -1) {
+				ids.add(fragment);
+				continue;
+			}
+			String first = fragment.substring(0, separator);
+			String last = fragment.substring(fragment.lastIndexOf("..") + 2);
+			Integer start = this.wordPositions.get(first);
+			Integer end = this.wordPositions.get(last);
+			
+			if (start == null || end == null) {
+				ids.add(first);
+				ids.add(last);
+				continue;
+			}
+			for (int i = start; i <= end; i++) {
+				ids.add(this.wordIds.get(i));
+			}
+		}
+		return ids.toArray(new String[ids.size()]);
+	}
+	
+	/**
+	 * Minimal XML scanner on a memory-mapped file which steps from start tag to start tag. It
+	 * understands exactly what MMAX2 writes: elements, attributes, text, comments, processing
+	 * instructions and the predefined and numeric entities.
+	 */
+	private static class XmlScanner {
+		private final ByteBuffer buffer;
+		private Charset charset = Charset.forName("UTF-8");
+		private String name;
+		private boolean empty;
+		private Map<String, String> attributes = new LinkedHashMap<String, String>();
+		
+		/**
+		 * Maps the file and reads the encoding from its XML declaration.
+		 * 
+		 * @param file The XML file.
+		 * @throws IOException If the file couldn't be mapped.
+		 */
+		XmlScanner(File file) throws IOException {
+			FileInputStream in = new FileInputStream(file);
+			
+			try {
+				FileChannel channel = in.getChannel();
+				
+				this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} finally {
+				in.close();
+			}
+			
+			/* skip the UTF-8 byte order mark */
+			if (buffer.remaining() >= 3 && (buffer.get(0) & 0xff) == 0xef &&
+					(buffer.get(1) & 0xff) == 0xbb && (buffer.get(2) & 0xff) == 0xbf) {
+				buffer.position(3);
+			}
+			if (startsWith("<?xml")) {
+				int start = buffer.position();
+				skipPast("?>");
+				Matcher matcher = ENCODING.matcher(decode(start, buffer.position(),
+						Charset.forName("ISO-8859-1")));
+				
+				if (matcher.find() && Charset.isSupported(matcher.group(1))) {
+					this.charset = Charset.forName(matcher.group(1));
+				}
+			}
+		}
+		
+		/**
+		 * Advances to the next start tag.
+		 * 
+		 * @return false if the end of the file has been reached.
+		 */
+		boolean nextElement() {
+			while (buffer.hasRemaining()) {
+				if (buffer.get() != '<' || ! buffer.hasRemaining()) {
+					continue;
+				}
+				byte next = buffer.get(buffer.position());
+				
+				if (startsWith("!--")) {
+					skipPast("-->");
+				} else if (startsWith("![CDATA[")) {
+					skipPast("]]>");
+				} else if (next == '/' || next == '?' || next == '!') {
+					skipPast(">");
+				} else {
+					readTag();
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Reads the name and attributes of the start tag at the current position.
+		 */
+		private void readTag() {
+			this.name = readName();
+			this.attributes.clear();
+			this.empty = false;
+			
+			while (buffer.hasRemaining()) {
+				skipWhitespace();
+				byte b = buffer.get();
+				
+				if (b == '>') {
+					return;
+				} else if (b == '/') {
+					this.empty = true;
+				} else {
+					buffer.position(buffer.position() - 1);
+					String attributeName = readName();
+					skipWhitespace();
+					
+					/* attribute without value, not well-formed */
+					if (! buffer.hasRemaining() || buffer.get() != '=') {
+						continue;
+					}
+					skipWhitespace();
+					byte quote = buffer.get();
+					int start = buffer.position();
+					
+					while (buffer.hasRemaining() && buffer.get() != quote) {}
+					this.attributes.put(attributeName,
+							unescape(decode(start, buffer.position() - 1, charset)));
+				}
+			}
+		}
+		
+		/**
+		 * Reads the text content of the current element up to the next tag.
+		 * 
+		 * @return The text or an empty string if the element is empty.
+		 */
+		String readText() {
+			if (this.empty) {
+				return "";
+			}
+			int start = buffer.position();
+			
+			while (buffer.hasRemaining() && buffer.get(buffer.position()) != '<') {
+				buffer.get();
+			}
+			return unescape(decode(start, buffer.position(), charset));
+		}
+		
+		/**
+		 * Getter for the name of the current element.
+		 * 
+		 * @return Name of the element.
+		 */
+		String getName() {
+			return this.name;
+		}
+		
+		/**
+		 * Returns an attribute of the current element.
+		 * 
+		 * @param attributeName Name of the attribute.
+		 * @return The value or null if the element has no such attribute.
+		 */
+		String getAttribute(String attributeName) {
+			return this.attributes.get(attributeName);
+		}
+		
+		/**
+		 * Getter for all the attributes of the current element.
+		 * 
+		 * @return Mapping between attribute names and values.
+		 */
+		Map<String, String> getAttributes() {
+			return this.attributes;
+		}
+		
+		private String readName() {
+			int start = buffer.position();
+			
+			while (buffer.hasRemaining()) {
+				byte b = buffer.get(buffer.position());
+				
+				if (b == '=' || b == '>' || b == '/' || isWhitespace(b)) {
+					break;
+				}
+				buffer.get();
+			}
+			return decode(start, buffer.position(), charset);
+		}
+		
+		private void skipWhitespace() {
+			while (buffer.hasRemaining() && isWhitespace(buffer.get(buffer.position()))) {
+				buffer.get();
+			}
+		}
+		
+		private void skipPast(String end) {
+			while (buffer.hasRemaining()) {
+				if (startsWith(end)) {
+					buffer.position(buffer.position() + end.length());
+					return;
+				}
+				buffer.get();
+			}
+		}
+		
+		private boolean startsWith(String prefix) {
+			if (buffer.remaining() < prefix.length()) {
+				return false;
+			}
+			for (int i = 0; i < prefix.length(); i++) {
+				if (buffer.get(buffer.position() + i) != prefix.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		private static boolean isWhitespace(byte b) {
+			return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+		}
+		
+		private String decode(int start, int end, Charset cs) {
+			byte[] bytes = new byte[end - start];
+			
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(start + i);
+			}
+			return new String(bytes, cs);
+		}
+		
+		/**
+		 * Replaces the predefined and numeric entities of a string.
+		 * 
+		 * @param s The string.
+		 * @return The string with entities replaced.
+		 */
+		private static String unescape(String s) {
+			if (s.indexOf('&') == -1) {
+				return s;
+			}
+			StringBuilder result = new StringBuilder(s.length());
+			int i = 0;
+			
+			while (i < s.length()) {
+				int end = s.indexOf(';', i);
+				
+				if (s.charAt(i) != '&' || end == -1) {
+					result.append(s.charAt(i++));
+					continue;
+				}
+				String entity = s.substring(i + 1, end);
+				
+				if (entity.equals("amp")) { result.append('&'); }
+				else if (entity.equals("lt")) { result.append('<'); }
+				else if (entity.equals("gt")) { result.append('>'); }
+				else if (entity.equals("quot")) { result.append('"'); }
+				else if (entity.equals("apos")) { result.append('\''); }
+				else if (! entity.startsWith("#") || ! appendCharacter(result, entity)) {
+					result.append(s.charAt(i++));
+					continue;
+				}
+				i = end + 1;
+			}
+			return result.toString();
+		}
+		
+		/**
+		 * Appends the character of a numeric character reference.
+		 * 
+		 * @param result The unescaped text.
+		 * @param entity The reference without '&amp;' and ';', e.g. "#233" or "#xE9".
+		 * @return false if the reference is malformed (it is kept literally then).
+		 */
+		private static boolean appendCharacter(StringBuilder result, String entity) {
+			try {
+				if (entity.startsWith("#x")) {
+					result.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+				} else {
+					result.appendCodePoint(Integer.parseInt(entity.substring(1)));
+				}
+				return true;
+			} catch (IllegalArgumentException e) {
+				/* NumberFormatException or a value which isn't a code point */
+				return false;
+			}
+		}
+	}
+}